@@ -26,11 +26,15 @@ import org.eknet.swing.task.impl.Util;
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 20.07.11 00:40
  */
-public abstract class AbstractTask<V, C> implements Task<V, C> {
+public abstract class AbstractTask<V, C> implements Task<V, C>, Prioritized, TimeLimited, Serial, Categorized {
 
   private final String id;
   private Mode mode = Mode.BACKGROUND;
   private Component component;
+  private int priority = 0;
+  private long timeout = 0;
+  private String lane;
+  private String category;
 
   protected AbstractTask(String id) {
     Util.checkNotNullArgument(id);
@@ -94,6 +98,54 @@ public abstract class AbstractTask<V, C> implements Task<V, C> {
     this.mode = mode;
   }
 
+  @Override
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  @Override
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets the maximum execution time of this task in milliseconds. A value
+   * {@code <= 0} means no limit.
+   *
+   * @param timeout
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  @Override
+  public String getLane() {
+    return lane;
+  }
+
+  /**
+   * Sets the lane of this task. Tasks of the same lane are executed one after
+   * another.
+   *
+   * @param lane the lane key or {@code null}
+   */
+  public void setLane(String lane) {
+    this.lane = lane;
+  }
+
+  @Override
+  public String getCategory() {
+    return category;
+  }
+
+  public void setCategory(String category) {
+    this.category = category;
+  }
+
   @Override
   public Component getComponent() {
     return component;
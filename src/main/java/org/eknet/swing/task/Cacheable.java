@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Optional interface for {@link Task}s whose results may be cached.
+ * <p/>
+ * If a {@link ResultCache} is configured with the task manager, the result of a
+ * successfully finished task is stored in the cache using the key returned by
+ * {@link #getCacheKey()}. Creating another task with the same key returns the
+ * cached value without executing the task again. Usually the key is the
+ * {@link Task#getId() task id}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 13:05
+ */
+public interface Cacheable {
+
+  /**
+   * Returns the key to cache the result of this task with.
+   *
+   * @return the cache key, or {@code null} to not use the cache
+   */
+  /*@Nullable*/
+  String getCacheKey();
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Optional interface for {@link Task}s that belong to a category. Concurrency
+ * limits of the task manager apply to the category of a task instead of its
+ * {@link Task#getId() id}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:02
+ */
+public interface Categorized {
+
+  /**
+   * @return the category of this task, or {@code null} to use the task id
+   */
+  /*@Nullable*/
+  String getCategory();
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown, if a task is not executed, because the circuit breaker for its
+ * id is {@link CircuitState#OPEN open}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:07
+ */
+public class CircuitOpenException extends RejectedExecutionException {
+  private static final long serialVersionUID = 1L;
+
+  private final String taskId;
+
+  public CircuitOpenException(String message, String taskId) {
+    super(message);
+    this.taskId = taskId;
+  }
+
+  /**
+   * @return the id of the rejected task
+   */
+  public String getTaskId() {
+    return taskId;
+  }
+}
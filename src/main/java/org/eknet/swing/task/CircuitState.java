@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * The state of a circuit breaker for tasks with the same {@link Task#getId() id}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:05
+ */
+public enum CircuitState {
+
+  /**
+   * Tasks are executed normally.
+   */
+  CLOSED,
+
+  /**
+   * Tasks fail immediately with a {@link CircuitOpenException} without being executed.
+   */
+  OPEN,
+
+  /**
+   * A single trial task is executed. If it succeeds, the circuit is closed again,
+   * otherwise it is opened.
+   */
+  HALF_OPEN
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Specifies the thread a {@link TaskListener} is notified on.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:05
+ */
+public enum Delivery {
+
+  /**
+   * The listener is called on the thread that fires the event. This is
+   * mostly the EDT, but progress and phase events may also come from
+   * the worker thread.
+   *
+   */
+  CALLER,
+
+  /**
+   * The listener is always called on the EDT. Use this for listeners that
+   * update the ui.
+   *
+   */
+  EDT,
+
+  /**
+   * The listener is called by a background dispatcher, so it never runs on
+   * the EDT. Events of one task are delivered in the order they were fired.
+   * If the dispatcher can not keep up, progress and phase changes are dropped.
+   * State changes are always delivered.
+   *
+   */
+  ASYNC
+
+}
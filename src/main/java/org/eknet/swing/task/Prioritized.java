@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Optional interface for {@link Task}s that want to specify an explicit priority.
+ * <p/>
+ * If tasks are run on a scheduler that is aware of priorities, pending tasks are ordered
+ * first by their {@link Mode} and then by this priority. Tasks not implementing this
+ * interface have a priority of {@code 0}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 10:12
+ */
+public interface Prioritized {
+
+  /**
+   * The priority of the task. Higher values are scheduled first.
+   *
+   * @return the task's priority
+   */
+  int getPriority();
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * A cache for the results of {@link Cacheable} tasks.
+ * <p/>
+ * Implementations must be thread safe. {@code null} values are not cached.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 13:08
+ */
+public interface ResultCache {
+
+  /**
+   * Returns the cached value for the given key.
+   *
+   * @param key
+   * @return the cached value or {@code null} if there is none
+   */
+  /*@Nullable*/
+  Object get(/*@NotNull*/ String key);
+
+  void put(/*@NotNull*/ String key, /*@Nullable*/ Object value);
+
+  /**
+   * Removes the value for the given key.
+   *
+   * @param key
+   */
+  void invalidate(/*@NotNull*/ String key);
+
+  /**
+   * Removes all values matching the given filter.
+   *
+   * @param filter
+   */
+  void invalidate(/*@NotNull*/ Filter filter);
+
+  void invalidateAll();
+
+  interface Filter {
+
+    boolean apply(/*@NotNull*/ String key, /*@NotNull*/ Object value);
+
+  }
+}
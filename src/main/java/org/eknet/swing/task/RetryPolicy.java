@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eknet.swing.task.impl.Util;
+
+/**
+ * Defines how failed tasks are retried. A task is retried, if it failed with an
+ * exception accepted by the {@link Filter} and its number of attempts is below
+ * {@link #getMaxAttempts()}. The delay between attempts grows exponentially and
+ * is randomized by the jitter, so that tasks failing at the same time are not
+ * retried at the same time.
+ * <p/>
+ * Instances are immutable, the {@code with..} methods return modified copies.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:10
+ */
+public final class RetryPolicy {
+
+  /**
+   * Accepts all exceptions except {@link InterruptedException}.
+   */
+  public static final Filter ALL_EXCEPTIONS = new Filter() {
+    @Override
+    public boolean isRetryable(/*@NotNull*/ Task<?, ?> task, /*@NotNull*/ Throwable cause) {
+      return !(cause instanceof InterruptedException);
+    }
+  };
+
+  private static final Random random = new Random();
+
+  private final int maxAttempts;
+  private final long initialDelay;
+  private final long maxDelay;
+  private final double multiplier;
+  private final double jitter;
+  private final Filter filter;
+
+  /**
+   * Creates a policy that doubles the delay after each attempt and randomizes
+   * it by up to 50%.
+   *
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param initialDelay the delay before the second attempt
+   * @param maxDelay the maximum delay between two attempts
+   * @param unit the unit of both delays
+   */
+  public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay, /*@NotNull*/ TimeUnit unit) {
+    this(maxAttempts, unit.toMillis(initialDelay), unit.toMillis(maxDelay), 2.0, 0.5, ALL_EXCEPTIONS);
+  }
+
+  private RetryPolicy(int maxAttempts, long initialDelay, long maxDelay, double multiplier, double jitter, Filter filter) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be >= 1: " + maxAttempts);
+    }
+    if (initialDelay < 0 || maxDelay < initialDelay) {
+      throw new IllegalArgumentException("Invalid delays: " + initialDelay + ", " + maxDelay);
+    }
+    if (multiplier < 1.0) {
+      throw new IllegalArgumentException("multiplier must be >= 1: " + multiplier);
+    }
+    if (jitter < 0.0 || jitter > 1.0) {
+      throw new IllegalArgumentException("jitter must be in [0, 1]: " + jitter);
+    }
+    Util.checkNotNullArgument(filter);
+    this.maxAttempts = maxAttempts;
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.filter = filter;
+  }
+
+  /**
+   * @param multiplier the factor the delay is multiplied with after each attempt
+   * @return a copy of this policy using the given multiplier
+   */
+  public RetryPolicy withMultiplier(double multiplier) {
+    return new RetryPolicy(maxAttempts, initialDelay, maxDelay, multiplier, jitter, filter);
+  }
+
+  /**
+   * @param jitter the fraction in {@code [0, 1]} by which a delay is randomly reduced
+   * @return a copy of this policy using the given jitter
+   */
+  public RetryPolicy withJitter(double jitter) {
+    return new RetryPolicy(maxAttempts, initialDelay, maxDelay, multiplier, jitter, filter);
+  }
+
+  /**
+   * @param filter decides which failures are retried
+   * @return a copy of this policy using the given filter
+   */
+  public RetryPolicy withFilter(/*@NotNull*/ Filter filter) {
+    return new RetryPolicy(maxAttempts, initialDelay, maxDelay, multiplier, jitter, filter);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Decides whether the given task is retried after its attempt failed.
+   *
+   * @param task
+   * @param attempt the number of the failed attempt, starting with 1
+   * @param cause
+   * @return {@code true} if the task should be executed again
+   */
+  public boolean isRetryable(/*@NotNull*/ Task<?, ?> task, int attempt, /*@NotNull*/ Throwable cause) {
+    return attempt < maxAttempts && filter.isRetryable(task, cause);
+  }
+
+  /**
+   * Returns the delay to wait after the given attempt failed.
+   *
+   * @param attempt the number of the failed attempt, starting with 1
+   * @return the delay in milliseconds
+   */
+  public long getDelay(int attempt) {
+    double delay = initialDelay * Math.pow(multiplier, Math.max(0, attempt - 1));
+    delay = Math.min(delay, maxDelay);
+    if (jitter > 0) {
+      delay = delay * (1.0 - jitter * random.nextDouble());
+    }
+    return (long) delay;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryPolicy{" +
+            "maxAttempts=" + maxAttempts +
+            ", initialDelay=" + initialDelay +
+            ", maxDelay=" + maxDelay +
+            ", multiplier=" + multiplier +
+            ", jitter=" + jitter +
+            '}';
+  }
+
+  public interface Filter {
+
+    /**
+     * @param task the failed task
+     * @param cause the exception the task failed with
+     * @return {@code true} if the task should be retried
+     */
+    boolean isRetryable(/*@NotNull*/ Task<?, ?> task, /*@NotNull*/ Throwable cause);
+
+  }
+}
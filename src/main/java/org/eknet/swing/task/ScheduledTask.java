@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * A handle to a task that is executed periodically by a {@link TaskManager}. Each
+ * run is a separate execution with its own {@link TaskControl} and {@link TaskContext},
+ * and fires the usual {@link TaskEvent}s.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:40
+ */
+public interface ScheduledTask<V> {
+
+  /**
+   * @return the control of the current or last run, or {@code null} if the task
+   * has not been run yet
+   */
+  /*@Nullable*/
+  TaskControl<V> getLastRun();
+
+  /**
+   * @return the number of runs started so far
+   */
+  int getRunCount();
+
+  /**
+   * Returns the number of runs that have been skipped, because the previous run
+   * was still executing when the next one was due.
+   *
+   * @return the number of skipped runs
+   */
+  int getSkipCount();
+
+  /**
+   * Stops scheduling further runs. A run that is currently executing is not
+   * cancelled, use {@link #getLastRun()} for this.
+   */
+  void cancel();
+
+  boolean isCancelled();
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Optional interface for {@link Task}s that must not run concurrently with other
+ * tasks using the same resource.
+ * <p/>
+ * All tasks returning the same lane key are executed one after another in the order
+ * they have been executed. Tasks of different lanes run in parallel. A task waiting
+ * for its lane does not occupy a thread.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:40
+ */
+public interface Serial {
+
+  /**
+   * Returns the key of the lane to run this task in, for example the name of the
+   * file the task is working on.
+   *
+   * @return the lane key, or {@code null} to run the task without restriction
+   */
+  /*@Nullable*/
+  String getLane();
+
+}
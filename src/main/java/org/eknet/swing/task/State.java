@@ -24,9 +24,20 @@ public enum State {
 
   PENDING(false),
   STARTED(false),
+
+  /**
+   * The task failed and waits for its next attempt, see {@link RetryPolicy}.
+   */
+  RETRYING(false),
+
   DONE(true),
   CANCELLED(true),
-  FAILED(true);
+  FAILED(true),
+
+  /**
+   * The task has been cancelled, because it exceeded its timeout.
+   */
+  TIMED_OUT(true);
 
   private final boolean finalState;
 
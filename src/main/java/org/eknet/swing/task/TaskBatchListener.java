@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.EventListener;
+
+/**
+ * Listener that receives the changes of all tasks in batches. Events are collected
+ * and delivered once per EDT cycle, so a listener can update the ui once regardless
+ * of how many tasks are running.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 12:30
+ */
+public interface TaskBatchListener extends EventListener {
+
+  /**
+   * Receives all changes since the last invocation. Invoked on the EDT.
+   *
+   * @param changes the changes, never empty
+   */
+  void tasksChanged(/*@NotNull*/ TaskChanges changes);
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Receives the outcome of a {@link TaskFuture}.
+ * <p/>
+ * Like with {@link Task}, exactly one of the methods is invoked. If the
+ * computation has been cancelled, {@link #failed(Throwable)} is invoked with a
+ * {@link java.util.concurrent.CancellationException}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:02
+ */
+public interface TaskCallback<V> {
+
+  void done(/*@Nullable*/ V value);
+
+  void failed(/*@NotNull*/ Throwable cause);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.List;
+
+/**
+ * A compacted set of task events, delivered to a {@link TaskBatchListener}.
+ * <p/>
+ * There is at most one event per task execution and property. If a property changed
+ * several times, the event holds the old value of the first and the new value of the
+ * last change. For example, a task that was started and finished within the same batch
+ * shows up as one change from {@link State#PENDING pending} to {@link State#DONE done}.
+ * Intermediate states are collapsed and not reported, so a listener must not rely on
+ * seeing {@link State#STARTED started} for every task, and must not expect the old
+ * value of a change to be a valid predecessor of its new value.
+ * The events of each list are ordered by the time their task first changed.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 12:30
+ */
+public interface TaskChanges {
+
+  /*@NotNull*/
+  List<ChangeEvent<State>> getStateChanges();
+
+  /*@NotNull*/
+  List<ChangeEvent<Integer>> getProgressChanges();
+
+  /*@NotNull*/
+  List<ChangeEvent<String>> getPhaseChanges();
+
+  /**
+   * @return the number of events that were compacted into this batch
+   */
+  int getEventCount();
+
+}
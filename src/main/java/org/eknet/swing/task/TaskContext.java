@@ -71,6 +71,23 @@ public interface TaskContext {
    */
   Long getDuration();
 
+  /**
+   * Returns the number of the current attempt to execute the task. It is
+   * greater than {@code 1}, if the task has been retried after a failure.
+   *
+   * @return the current attempt, starting with 1
+   * @see RetryPolicy
+   */
+  int getAttempt();
+
+  /**
+   * Returns the state of the circuit breaker for tasks with the id of this
+   * context's task.
+   *
+   * @return the circuit state, never null
+   */
+  CircuitState getCircuitState();
+
   /**
    * Adds listener that receives events for this execution only. Use
    * {@link TaskListenerSupport} to add more global listeners.
@@ -78,5 +95,14 @@ public interface TaskContext {
    * @param listener
    */
   void addListener(TaskListener listener);
+
+  /**
+   * Adds listener that receives events for this execution only on the thread
+   * specified by the given delivery.
+   *
+   * @param listener
+   * @param delivery
+   */
+  void addListener(TaskListener listener, /*@NotNull*/ Delivery delivery);
   void removeListener(TaskListener listener);
 }
@@ -16,18 +16,60 @@
 
 package org.eknet.swing.task;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 20.07.11 09:41
  */
 public interface TaskControl<V> {
 
+  /**
+   * Starts the task if it is pending and waits for its result.
+   * <p/>
+   * If called on the EDT, events are still dispatched while waiting, so the ui is
+   * repainted and the task's {@link Task#process(java.util.List)} and {@link Task#done(Object)}
+   * methods are invoked as usual.
+   *
+   * @return the result of the task
+   */
   V waitFor();
 
+  /**
+   * Like {@link #waitFor()} but waits at most the given time. The task is not
+   * cancelled if the timeout elapses.
+   *
+   * @param timeout the maximum time to wait, a negative value waits forever
+   * @param unit the unit of {@code timeout}
+   * @return the result of the task
+   * @throws TimeoutException if the task did not finish in time
+   */
+  V waitFor(long timeout, /*@NotNull*/ TimeUnit unit) throws TimeoutException;
+
   void execute();
+
+  /**
+   * Starts the task with a timeout. If the task does not finish in time, it is
+   * cancelled and ends in state {@link State#TIMED_OUT}. This overrides a timeout
+   * declared by a {@link TimeLimited} task.
+   *
+   * @param timeout the maximum execution time
+   * @param unit the unit of {@code timeout}
+   */
+  void execute(long timeout, /*@NotNull*/ TimeUnit unit);
   
   void cancel();
 
+  /**
+   * Returns a future that completes once the task is done, failed or has been
+   * cancelled. It can be used to chain further work without blocking a thread,
+   * as opposed to {@link #waitFor()}. Getting the future does not start the task.
+   *
+   * @return the future of this task, never null
+   */
+  TaskFuture<V> getFuture();
+
   /**
    *
    * @return the task context, never null
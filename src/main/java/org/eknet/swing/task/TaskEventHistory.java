@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Keeps the most recent task events in a bounded buffer. Each event gets a sequence
+ * number, starting at <code>1</code>.
+ * <p/>
+ * A listener that subscribes late receives the events still in the buffer,
+ * starting at a given sequence number, followed by all new events. No event is
+ * missed or delivered twice in between. A subscriber that falls behind by more
+ * than the capacity misses the events that have been overwritten.
+ * <p/>
+ * The history is empty while its capacity is <code>0</code>.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:10
+ */
+public interface TaskEventHistory {
+
+  /**
+   * @return the maximum number of events kept
+   */
+  int getCapacity();
+
+  /**
+   * @return the sequence number of the latest event, or <code>0</code> if
+   * there was none yet
+   */
+  long getLatestSequence();
+
+  /**
+   * @return the sequence number of the oldest event in the buffer. If the
+   * buffer is empty, this is the number the next event will get.
+   */
+  long getOldestSequence();
+
+  /**
+   * Subscribes the given listener. It first receives the events in the buffer with
+   * a sequence number of at least <code>fromSequence</code>, in order, and then
+   * all new events. Use {@link #getLatestSequence()} + 1 to only receive new events.
+   * <p/>
+   * Events are delivered on the thread that fired them, or on the calling thread
+   * during the replay.
+   *
+   * @param fromSequence the sequence number of the first event to deliver
+   * @param listener the listener
+   * @return the sequence number of the first event delivered, which is greater
+   * than <code>fromSequence</code> if older events have already been overwritten
+   * @throws IllegalStateException if the capacity is <code>0</code>
+   */
+  long subscribe(long fromSequence, /*@NotNull*/ TaskListener listener);
+
+  void unsubscribe(TaskListener listener);
+
+}
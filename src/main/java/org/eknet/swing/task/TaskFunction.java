@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * A function that is applied to the result of a {@link TaskFuture}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:04
+ */
+public interface TaskFunction<I, O> {
+
+  /**
+   * Computes a new value from the given input. If an exception is thrown, the
+   * resulting future fails with it.
+   *
+   * @param input
+   * @return the computed value
+   * @throws Exception
+   */
+  O apply(/*@Nullable*/ I input) throws Exception;
+
+}
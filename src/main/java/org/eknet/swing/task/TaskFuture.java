@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} that allows to register callbacks and to chain further
+ * computations without blocking a thread.
+ * <p/>
+ * Callbacks and functions are invoked on the given {@link Executor}. If none is given
+ * they are invoked on the EDT. Use the executor of the task manager to run continuations
+ * in the background.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:06
+ */
+public interface TaskFuture<V> extends Future<V> {
+
+  /**
+   * Registers a callback that is invoked on the EDT once this future completes.
+   * If it is already completed, the callback is invoked right away.
+   *
+   * @param callback
+   */
+  void addCallback(/*@NotNull*/ TaskCallback<? super V> callback);
+
+  void addCallback(/*@NotNull*/ TaskCallback<? super V> callback, /*@NotNull*/ Executor executor);
+
+  /**
+   * Returns a new future that completes with the result of applying {@code function}
+   * to the value of this future. If this future fails, the returned one fails with the
+   * same cause.
+   *
+   * @param function
+   * @param executor the executor to apply the function on
+   * @return a new future
+   */
+  /*@NotNull*/
+  <R> TaskFuture<R> then(/*@NotNull*/ TaskFunction<? super V, ? extends R> function, /*@NotNull*/ Executor executor);
+
+  /**
+   * Like {@link #then(TaskFunction, Executor)} but the function returns another future,
+   * for example the one of another task. The returned future completes once this
+   * other future completes.
+   *
+   * @param function
+   * @param executor the executor to apply the function on
+   * @return a new future
+   */
+  /*@NotNull*/
+  <R> TaskFuture<R> thenCompose(/*@NotNull*/ TaskFunction<? super V, ? extends TaskFuture<R>> function, /*@NotNull*/ Executor executor);
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.List;
+
+/**
+ * A graph of tasks with dependencies between them.
+ * <p/>
+ * Each task is added together with the nodes of the tasks it depends on. Once the
+ * graph is executed, a task is started as soon as all of its predecessors completed
+ * successfully. Tasks without dependencies between them run in parallel and no
+ * thread is blocked waiting for predecessors. A task can read the results of its
+ * predecessors with {@link Node#getResult()}.
+ * <p/>
+ * If a task fails or is cancelled, all tasks depending on it (directly or not) are
+ * cancelled. The {@link #getFuture() future} of the graph completes once all tasks
+ * are finished.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:30
+ */
+public interface TaskGraph {
+
+  /**
+   * Adds a task to this graph.
+   *
+   * @param task
+   * @param predecessors the nodes of this graph the task depends on
+   * @return the node of the task
+   * @throws IllegalStateException if this graph has already been executed
+   * @throws IllegalArgumentException if a predecessor does not belong to this graph
+   */
+  /*@NotNull*/
+  <V, C> Node<V> add(/*@NotNull*/ Task<V, C> task, Node<?>... predecessors);
+
+  /**
+   * Creates a {@link TaskControl} for each task of this graph and starts all tasks
+   * without predecessors. This method does not block.
+   */
+  void execute();
+
+  /**
+   * Cancels all tasks of this graph that are not finished yet.
+   */
+  void cancel();
+
+  /**
+   * Returns a future that completes once all tasks of this graph are finished. It
+   * fails with the cause of the first task that failed or has been cancelled.
+   *
+   * @return the future of this graph
+   */
+  /*@NotNull*/
+  TaskFuture<Void> getFuture();
+
+  /**
+   * Returns the progress of the whole graph in {@code [0, 100]}. It is the average
+   * progress of all tasks, a finished task counts as completed.
+   *
+   * @return the aggregated progress
+   */
+  int getProgress();
+
+  /*@NotNull*/
+  List<Node<?>> getNodes();
+
+  void addProgressListener(/*@NotNull*/ ProgressListener listener);
+  void removeProgressListener(/*@NotNull*/ ProgressListener listener);
+
+  /**
+   * A task of a graph.
+   */
+  interface Node<V> {
+
+    /*@NotNull*/
+    Task<V, ?> getTask();
+
+    /*@NotNull*/
+    List<Node<?>> getPredecessors();
+
+    /**
+     * @return the control of the task, or {@code null} if the graph has not been executed
+     */
+    /*@Nullable*/
+    TaskControl<V> getControl();
+
+    /**
+     * Returns the result of this node's task.
+     *
+     * @return the result of the task
+     * @throws IllegalStateException if the task has not completed successfully
+     */
+    /*@Nullable*/
+    V getResult();
+
+  }
+
+  /**
+   * Receives the aggregated progress of a graph. It is invoked on the EDT.
+   */
+  interface ProgressListener {
+
+    void progressChanged(/*@NotNull*/ TaskGraph graph, int oldProgress, int newProgress);
+
+  }
+}
@@ -33,12 +33,17 @@ public interface TaskListener extends EventListener {
    * <ol>
    *   <li><code>null</code> to {@link State#PENDING pending}</li> indicates, that a brand new task has just been created.
    *   <li>{@link State#PENDING pending} to {@link State#STARTED started} indicates, that the task has just been executed and is now running</li>
-   *   <li>from {@link State#STARTED started} state, three different final events are possible:</li>
+   *   <li>from {@link State#STARTED started} state, four different final events are possible:</li>
    *   <ul>
    *     <li>{@link State#DONE done} indicates successful termination of the task</li>
    *     <li>{@link State#CANCELLED cancelled} indicates that the task has been cancelled explicitely.</li>
    *     <li>{@link State#FAILED failed} indicates that the task has been failed due to an exception.</li>
+   *     <li>{@link State#TIMED_OUT timed out} indicates that the task has been cancelled, because it exceeded its timeout.</li>
    *   </ul>
+   *   <li>{@link State#STARTED started} to {@link State#RETRYING retrying} indicates, that the task failed and is
+   *   executed again after a delay. It is followed by {@link State#STARTED started}, or by
+   *   {@link State#CANCELLED cancelled} if the task is cancelled meanwhile.
+   *   {@link TaskContext#getAttempt()} returns the number of the current attempt.</li>
    * </ol>
    * @param event
    */
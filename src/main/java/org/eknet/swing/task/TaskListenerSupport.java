@@ -28,6 +28,15 @@ public interface TaskListenerSupport {
    * @param listener
    */
   void addListener(TaskListener listener);
+
+  /**
+   * Add a {@link TaskListener} that receives events for all tasks executed
+   * on the thread specified by the given delivery.
+   *
+   * @param listener
+   * @param delivery
+   */
+  void addListener(TaskListener listener, /*@NotNull*/ Delivery delivery);
   void removeListener(TaskListener listener);
 
   /**
@@ -38,6 +47,25 @@ public interface TaskListenerSupport {
    * @param listener
    */
   void addListener(/*@NotNull*/ String taskId, TaskListener listener);
+
+  /**
+   * Add a {@link TaskListener} that will only receive events for tasks with
+   * the specified id on the thread specified by the given delivery.
+   *
+   * @param taskId
+   * @param listener
+   * @param delivery
+   */
+  void addListener(/*@NotNull*/ String taskId, TaskListener listener, /*@NotNull*/ Delivery delivery);
   void removeListener(/*@NotNull*/ String taskId, TaskListener listener);
 
+  /**
+   * Add a {@link TaskBatchListener} that receives the events of all tasks
+   * once per EDT cycle.
+   *
+   * @param listener
+   */
+  void addBatchListener(TaskBatchListener listener);
+  void removeBatchListener(TaskBatchListener listener);
+
 }
@@ -18,6 +18,7 @@ package org.eknet.swing.task;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -41,6 +42,74 @@ public interface TaskManager {
   /*@NotNull*/
   <V, C> TaskControl<V> create(/*@NotNull*/ Task<V, C> task);
 
+  /**
+   * Creates a task and executes it after a quiet period. If another task with the
+   * same {@link Task#getId() id} is submitted by this method within the quiet period,
+   * this task is cancelled and the quiet period starts again for the new one. A task
+   * that is already running is cancelled, too. Thus only the latest task of a burst
+   * is completed, which is useful for tasks triggered by frequent ui events like
+   * typing into a search field.
+   *
+   * @param task
+   * @param quietPeriod
+   * @param unit
+   * @return the control of the created task
+   */
+  /*@NotNull*/
+  <V, C> TaskControl<V> createDebounced(/*@NotNull*/ Task<V, C> task, long quietPeriod, /*@NotNull*/ TimeUnit unit);
+
+  /**
+   * Creates a new, empty graph of tasks that are created by this manager
+   * once the graph is executed.
+   *
+   * @return a new task graph
+   */
+  /*@NotNull*/
+  TaskGraph createGraph();
+
+  /**
+   * Creates a task and executes it after the given delay. The returned control is
+   * already executed, but its state is {@link State#PENDING} until the delay elapsed.
+   * Cancelling it before, prevents the task from running.
+   *
+   * @param task
+   * @param delay
+   * @param unit
+   * @return the control of the created task
+   */
+  /*@NotNull*/
+  <V, C> TaskControl<V> schedule(/*@NotNull*/ Task<V, C> task, long delay, /*@NotNull*/ TimeUnit unit);
+
+  /**
+   * Executes the given task periodically. The first run starts after {@code initialDelay}
+   * and then every {@code period}. If a run is still executing when the next one is due,
+   * the next one is skipped. Each run is created like by {@link #create(Task)}, thus the
+   * task must be able to execute more than once.
+   *
+   * @param task
+   * @param initialDelay
+   * @param period
+   * @param unit
+   * @return a handle to stop the periodic execution
+   */
+  /*@NotNull*/
+  <V, C> ScheduledTask<V> scheduleAtFixedRate(/*@NotNull*/ Task<V, C> task, long initialDelay, long period, /*@NotNull*/ TimeUnit unit);
+
+  /**
+   * Executes the given task periodically. The first run starts after {@code initialDelay}
+   * and each further run {@code delay} after the previous one completed. Each run is
+   * created like by {@link #create(Task)}, thus the task must be able to execute more
+   * than once.
+   *
+   * @param task
+   * @param initialDelay
+   * @param delay
+   * @param unit
+   * @return a handle to stop the periodic execution
+   */
+  /*@NotNull*/
+  <V, C> ScheduledTask<V> scheduleWithFixedDelay(/*@NotNull*/ Task<V, C> task, long initialDelay, long delay, /*@NotNull*/ TimeUnit unit);
+
   /**
    * Allows to add listeners.
    * 
@@ -49,6 +118,15 @@ public interface TaskManager {
   /*@NotNull*/
   TaskListenerSupport getTaskListenerSupport();
 
+  /**
+   * Returns the history of recent task events, that allows late listeners
+   * to catch up.
+   *
+   * @return the event history
+   */
+  /*@NotNull*/
+  TaskEventHistory getEventHistory();
+
   /**
    * Returns a collection of all currently created task conforming to
    * the specified predicate. The contract is to have all started
@@ -95,4 +173,31 @@ public interface TaskManager {
   /*@NotNull*/
   <T> Future<T> submit(/*@NotNull*/ Callable<T> task);
 
+  /**
+   * Initiates an orderly shutdown. Tasks that are already executing are completed,
+   * but no new tasks are accepted: {@link #create(Task)} and {@link #submit(Runnable)}
+   * throw a {@link java.util.concurrent.RejectedExecutionException} and created tasks
+   * that are executed after this call are cancelled.
+   */
+  void shutdown();
+
+  /**
+   * Shuts down this manager and cancels all pending and running tasks. Listeners receive
+   * the final state events for all cancelled tasks.
+   */
+  void shutdownNow();
+
+  boolean isShutdown();
+
+  /**
+   * Blocks until all executing tasks have finished after a shutdown request, or the
+   * timeout elapses. If called on the EDT, events are still dispatched while waiting.
+   *
+   * @param timeout
+   * @param unit
+   * @return {@code true} if this manager terminated, {@code false} if the timeout elapsed
+   * @throws InterruptedException
+   */
+  boolean awaitTermination(long timeout, /*@NotNull*/ TimeUnit unit) throws InterruptedException;
+
 }
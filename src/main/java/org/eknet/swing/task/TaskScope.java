@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A scope for child tasks forked from within {@link Task#execute(Tracker)}. The
+ * children run in parallel to the task and are bound to it:
+ * <ul>
+ *   <li>if the task is cancelled, fails or returns, all unfinished children are cancelled,</li>
+ *   <li>if a child fails, all other children of the scope are cancelled,</li>
+ *   <li>the progress of the task is the average progress of its children.</li>
+ * </ul>
+ * A scope is obtained by {@link Tracker#newScope()}. Typically all children are forked
+ * and then {@link #join() joined}:
+ * <pre>
+ *   TaskScope&lt;C&gt; scope = tracker.newScope();
+ *   TaskFuture&lt;Long&gt; a = scope.fork(new CountTask(dirA));
+ *   TaskFuture&lt;Long&gt; b = scope.fork(new CountTask(dirB));
+ *   scope.join();
+ *   return a.get() + b.get();
+ * </pre>
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:30
+ */
+public interface TaskScope<C> {
+
+  /**
+   * Starts the given task as a child of this scope. The child gets its own
+   * {@link Tracker}: its progress is rolled up into the parent's progress, phases
+   * and chunks are passed to the parent. {@link Task#done(Object)} and
+   * {@link Task#failed(Throwable)} of the child are invoked on the EDT, but no
+   * {@link TaskEvent}s are fired for it.
+   *
+   * @param task
+   * @return the future of the child
+   */
+  /*@NotNull*/
+  <V> TaskFuture<V> fork(/*@NotNull*/ Task<V, C> task);
+
+  /**
+   * Starts the given callable as a child of this scope.
+   *
+   * @param callable
+   * @return the future of the child
+   */
+  /*@NotNull*/
+  <V> TaskFuture<V> fork(/*@NotNull*/ Callable<V> callable);
+
+  /**
+   * Waits until all children of this scope are finished. Children that have not
+   * been started yet are run on the calling thread.
+   *
+   * @throws InterruptedException if the calling thread has been interrupted, all
+   * children are cancelled then
+   * @throws ExecutionException if a child failed, with its exception as cause
+   * @throws java.util.concurrent.CancellationException if the scope has been cancelled
+   */
+  void join() throws InterruptedException, ExecutionException;
+
+  /**
+   * Cancels all unfinished children of this scope. Children forked afterwards
+   * are cancelled immediately.
+   */
+  void cancel();
+
+  boolean isCancelled();
+
+}
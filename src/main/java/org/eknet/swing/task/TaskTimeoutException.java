@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Passed to {@link Task#failed(Throwable)} if a task has been cancelled because it
+ * exceeded its timeout.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 15:12
+ */
+public class TaskTimeoutException extends CancellationException {
+  private static final long serialVersionUID = 1L;
+
+  private final long timeout;
+
+  public TaskTimeoutException(String message, long timeout) {
+    super(message);
+    this.timeout = timeout;
+  }
+
+  /**
+   * @return the timeout that elapsed, in milliseconds
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+}
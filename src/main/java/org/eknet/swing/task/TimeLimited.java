@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task;
+
+/**
+ * Optional interface for {@link Task}s that must finish within a certain time.
+ * <p/>
+ * The time is measured from the moment the task is executed. If it elapses, the
+ * task is cancelled and ends in state {@link State#TIMED_OUT}. The task's
+ * {@link Task#failed(Throwable)} method receives a {@link TaskTimeoutException}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 15:10
+ */
+public interface TimeLimited {
+
+  /**
+   * @return the maximum execution time in milliseconds, or a value {@code <= 0} for no limit
+   */
+  long getTimeout();
+
+}
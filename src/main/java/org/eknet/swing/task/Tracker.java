@@ -39,7 +39,8 @@ public interface Tracker<C> {
   void setProgress(int progress);
 
   /**
-   * Set the current progress. 
+   * Set the current progress as the position of {@code current} between
+   * {@code min} and {@code max}. Invalid values are ignored.
    * 
    * @param min
    * @param max
@@ -47,8 +48,41 @@ public interface Tracker<C> {
    */
   void setProgress(int min, int max, int current);
 
+  /**
+   * Like {@link #setProgress(int, int, int)}, but for large counts.
+   *
+   * @param min
+   * @param max
+   * @param current
+   */
+  void setProgress(long min, long max, long current);
+
+  /**
+   * Creates a sub-tracker for a part of the work. The progress of this tracker
+   * is the weighted average of the progress of all its sub-trackers, for example
+   * two sub-trackers with weights {@code 1} and {@code 3} contribute 25% and 75%.
+   * Thus all sub-trackers should be created before progress is reported.
+   * <p/>
+   * Sub-trackers can be updated from different threads without locking and can
+   * be split again. Phases and chunks are passed to this tracker.
+   *
+   * @param weight the weight of the part, must be positive
+   * @return a new sub-tracker
+   */
+  /*@NotNull*/
+  Tracker<C> split(int weight);
+
   void setPhase(/*@Nullable*/ String phase);
 
   void publish(C... chunks);
 
+  /**
+   * Creates a new scope for forking child tasks of the current task. The children
+   * are cancelled at the latest when the current task finishes.
+   *
+   * @return a new scope
+   */
+  /*@NotNull*/
+  TaskScope<C> newScope();
+
 }
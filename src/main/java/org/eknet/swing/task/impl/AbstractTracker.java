@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eknet.swing.task.TaskScope;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * Base class of trackers that implements range conversion and sub-trackers.
+ * <p/>
+ * Progress is handled internally as a fraction scaled to {@link #SCALE}. Each
+ * sub-tracker adds the change of its weighted progress to a counter of its parent,
+ * so aggregation needs no locks and the parent's progress is {@code sum / weights}.
+ * The aggregated progress is published monotonically: a value is only published if
+ * it is greater than the last one, so a stale sum never overwrites a newer one.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:20
+ */
+public abstract class AbstractTracker<C> implements Tracker<C> {
+
+  /**
+   * The internal representation of 100%.
+   */
+  static final long SCALE = 1000000L;
+
+  private final AtomicLong splitWeights = new AtomicLong(0);
+  private final AtomicLong splitProgress = new AtomicLong(0);
+  private final AtomicLong lastPublished = new AtomicLong(-1);
+
+  @Override
+  public void setProgress(int min, int max, int current) {
+    setProgress((long) min, (long) max, (long) current);
+  }
+
+  @Override
+  public void setProgress(long min, long max, long current) {
+    long value = scale(min, max, current);
+    if (value >= 0) {
+      setScaledProgress(value);
+    }
+  }
+
+  /**
+   * Converts the given progress into a fraction of {@link #SCALE}.
+   *
+   * @return the scaled progress or {@code -1} if the values are invalid
+   */
+  static long scale(long min, long max, long current) {
+    if (min > max || current < min || current > max) {
+      return -1;
+    }
+    if (min == max) {
+      return SCALE;
+    }
+    //doubles don't overflow for large ranges and are precise enough here
+    return (long) (((double) current - min) / ((double) max - min) * SCALE);
+  }
+
+  /*@NotNull*/
+  @Override
+  public Tracker<C> split(int weight) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("weight must be > 0: " + weight);
+    }
+    addSplitWeight(weight);
+    return new SubTracker<C>(this, weight);
+  }
+
+  /**
+   * Registers a sub-tracker with the given weight.
+   *
+   * @param weight
+   */
+  void addSplitWeight(int weight) {
+    splitWeights.addAndGet(weight);
+    splitProgressed(0);
+  }
+
+  /**
+   * Invoked by a sub-tracker when its weighted progress changed.
+   *
+   * @param delta the change of the weighted progress
+   */
+  void splitProgressed(long delta) {
+    splitProgress.addAndGet(delta);
+    long value = splitProgress.get() / splitWeights.get();
+    long last;
+    do {
+      last = lastPublished.get();
+      if (value <= last) {
+        return;
+      }
+    } while (!lastPublished.compareAndSet(last, value));
+    setScaledProgress(value);
+    //a newer value may have been published while this one was, so repeat it
+    //to end up with the latest value
+    long latest;
+    while ((latest = lastPublished.get()) != value) {
+      value = latest;
+      setScaledProgress(value);
+    }
+  }
+
+  /*@NotNull*/
+  @Override
+  public TaskScope<C> newScope() {
+    TaskScopeImpl<C> scope = new TaskScopeImpl<C>(this, getScopeExecutor());
+    bindScope(scope);
+    return scope;
+  }
+
+  /**
+   * Sets the progress of this tracker.
+   *
+   * @param progress the progress in {@code [0, SCALE]}
+   */
+  protected abstract void setScaledProgress(long progress);
+
+  /**
+   * @return the executor for child tasks of scopes, or {@code null} for a default one
+   */
+  /*@Nullable*/
+  abstract Executor getScopeExecutor();
+
+  /**
+   * Binds the given scope to the lifetime of the task this tracker belongs to.
+   *
+   * @param scope
+   */
+  abstract void bindScope(/*@NotNull*/ TaskScope<?> scope);
+
+}
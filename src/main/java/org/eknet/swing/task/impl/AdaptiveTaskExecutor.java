@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link PriorityTaskExecutor} that adapts its number of threads to the current load.
+ * <p/>
+ * A plain {@link java.util.concurrent.ThreadPoolExecutor} with an unbounded queue never
+ * starts more than its core threads. This executor therefore raises the core pool size
+ * while work is queued, up to a <i>target size</i>, and lowers it back to the minimum
+ * once the queue is empty. Threads above the minimum terminate after being idle for
+ * the keep-alive time.
+ * <p/>
+ * The target size is derived from the observed task latency: for each task the wall-clock
+ * time and, if supported by the jvm, the cpu time are measured. With a ratio of waiting to
+ * computing, the target size is {@code availableProcessors * (1 + wait / compute)}, which
+ * is kept within the given minimum and maximum. If cpu time cannot be measured, the maximum
+ * size is used as target.
+ * <p/>
+ * The current sizing decision can be inspected with {@link #getTargetPoolSize()} and the
+ * other statistic getters.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:40
+ */
+public class AdaptiveTaskExecutor extends PriorityTaskExecutor {
+  private final static Logger log = LoggerFactory.getLogger(AdaptiveTaskExecutor.class);
+
+  /**
+   * The weight of a new sample for the moving averages.
+   */
+  private static final double ALPHA = 0.2;
+
+  private final int minPoolSize;
+  private final int processors = Runtime.getRuntime().availableProcessors();
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported;
+
+  private final ThreadLocal<long[]> startTimes = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[2];
+    }
+  };
+
+  private final Object statsLock = new Object();
+  private double averageRunNanos = 0;
+  private double averageCpuNanos = 0;
+  private double averageQueueNanos = 0;
+  private long completedSamples = 0;
+
+  private volatile int targetPoolSize;
+
+  public AdaptiveTaskExecutor(int minPoolSize, int maxPoolSize, /*@NotNull*/ ThreadFactory threadFactory) {
+    this(minPoolSize, maxPoolSize, 20L, TimeUnit.SECONDS, threadFactory);
+  }
+
+  public AdaptiveTaskExecutor(int minPoolSize, int maxPoolSize, long keepAliveTime, /*@NotNull*/ TimeUnit unit,
+                              /*@NotNull*/ ThreadFactory threadFactory) {
+    super(minPoolSize, maxPoolSize, keepAliveTime, unit,
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_AGING_STEP_MILLIS), threadFactory);
+    this.minPoolSize = minPoolSize;
+    this.cpuTimeSupported = isCpuTimeSupported(threadBean);
+    this.targetPoolSize = cpuTimeSupported ? Math.max(minPoolSize, Math.min(processors, maxPoolSize)) : maxPoolSize;
+  }
+
+  private static boolean isCpuTimeSupported(ThreadMXBean bean) {
+    try {
+      return bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled();
+    } catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void execute(/*@NotNull*/ Runnable command) {
+    super.execute(command);
+    adjustPoolSize();
+  }
+
+  private void adjustPoolSize() {
+    int queued = getQueue().size();
+    int core = getCorePoolSize();
+    int target = targetPoolSize;
+    if (queued > 0 && core < target) {
+      int size = Math.min(target, core + queued);
+      log.debug("Growing pool from {} to {} threads ({} queued)", new Object[]{core, size, queued});
+      setCorePoolSize(size);
+    } else if (queued == 0 && core > minPoolSize) {
+      setCorePoolSize(minPoolSize);
+    }
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    long submitted = getSubmitNanos(r);
+    long[] start = startTimes.get();
+    start[0] = System.nanoTime();
+    start[1] = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+    if (submitted >= 0) {
+      synchronized (statsLock) {
+        averageQueueNanos = average(averageQueueNanos, start[0] - submitted);
+      }
+    }
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    long[] start = startTimes.get();
+    long run = System.nanoTime() - start[0];
+    long cpu = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() - start[1] : 0;
+    int target;
+    synchronized (statsLock) {
+      averageRunNanos = average(averageRunNanos, run);
+      averageCpuNanos = average(averageCpuNanos, cpu);
+      completedSamples++;
+      target = computeTargetPoolSize();
+    }
+    if (target != targetPoolSize) {
+      log.debug("Target pool size changed from {} to {}", targetPoolSize, target);
+      targetPoolSize = target;
+    }
+    if (!isShutdown()) {
+      adjustPoolSize();
+    }
+  }
+
+  private double average(double current, long sample) {
+    if (completedSamples == 0 && current == 0) {
+      return sample;
+    }
+    return current + ALPHA * (sample - current);
+  }
+
+  private int computeTargetPoolSize() {
+    int max = getMaximumPoolSize();
+    if (!cpuTimeSupported) {
+      return max;
+    }
+    double compute = Math.max(averageCpuNanos, 1);
+    double wait = Math.max(averageRunNanos - averageCpuNanos, 0);
+    long size = Math.round(processors * (1 + wait / compute));
+    return (int) Math.max(minPoolSize, Math.min(max, size));
+  }
+
+  /**
+   * The number of threads this executor currently grows to if work is queued.
+   *
+   * @return the current target pool size
+   */
+  public int getTargetPoolSize() {
+    return targetPoolSize;
+  }
+
+  public int getMinimumPoolSize() {
+    return minPoolSize;
+  }
+
+  /**
+   * @return the moving average of the time tasks are running, in milliseconds
+   */
+  public double getAverageRunTime() {
+    synchronized (statsLock) {
+      return averageRunNanos / 1000000d;
+    }
+  }
+
+  /**
+   * @return the moving average of the cpu time used by tasks, in milliseconds
+   */
+  public double getAverageCpuTime() {
+    synchronized (statsLock) {
+      return averageCpuNanos / 1000000d;
+    }
+  }
+
+  /**
+   * @return the moving average of the time tasks are waiting in the queue, in milliseconds
+   */
+  public double getAverageQueueTime() {
+    synchronized (statsLock) {
+      return averageQueueNanos / 1000000d;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveTaskExecutor{" +
+            "poolSize=" + getPoolSize() +
+            ", corePoolSize=" + getCorePoolSize() +
+            ", targetPoolSize=" + targetPoolSize +
+            ", queued=" + getQueue().size() +
+            ", averageRunTime=" + getAverageRunTime() +
+            ", averageCpuTime=" + getAverageCpuTime() +
+            ", averageQueueTime=" + getAverageQueueTime() +
+            '}';
+  }
+}
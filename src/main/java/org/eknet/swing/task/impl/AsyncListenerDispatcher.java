@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs listener notifications on background threads. Notifications are assigned to
+ * one of several single threaded lanes by their key, so notifications with the
+ * same key are run in the order they were submitted.
+ * <p/>
+ * Notifications are either droppable, like progress and phase changes, or not, like
+ * state changes. Droppable notifications are bounded by the capacity of a lane: if
+ * it is exceeded, the notification is dropped and counted. Other notifications are
+ * always queued, so a final state is never lost and still delivered in order. The
+ * caller (usually the EDT) is never blocked. After {@link #shutdown()} notifications
+ * are run on the caller.
+ * <p/>
+ * The threads are daemons and terminate when idle.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:20
+ */
+public class AsyncListenerDispatcher {
+  private final static Logger log = LoggerFactory.getLogger(AsyncListenerDispatcher.class);
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+    private final ThreadFactory defaultTf = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = defaultTf.newThread(r);
+      t.setName("SwingTask-Listener-" + t.getName());
+      t.setDaemon(true);
+      return t;
+    }
+  };
+
+  private final ThreadPoolExecutor[] lanes;
+  private final int capacity;
+  private final AtomicLong dropped = new AtomicLong();
+
+  public AsyncListenerDispatcher() {
+    this(Math.min(4, Runtime.getRuntime().availableProcessors()), DEFAULT_CAPACITY);
+  }
+
+  public AsyncListenerDispatcher(int threads, int capacity) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    //the queues are unbounded, so this is only reached after shutdown
+    RejectedExecutionHandler callerRuns = new RejectedExecutionHandler() {
+      @Override
+      public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        r.run();
+      }
+    };
+    lanes = new ThreadPoolExecutor[threads];
+    for (int i = 0; i < threads; i++) {
+      lanes[i] = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), THREAD_FACTORY, callerRuns);
+      lanes[i].allowCoreThreadTimeOut(true);
+    }
+  }
+
+  /**
+   * Runs the given notification in the background. Notifications of the same key
+   * are run in order. The notification is never dropped.
+   *
+   * @param key the ordering key, usually the task id
+   * @param notification the notification to run
+   */
+  public void execute(/*@NotNull*/ Object key, /*@NotNull*/ Runnable notification) {
+    execute(key, notification, false);
+  }
+
+  /**
+   * Runs the given notification in the background. Notifications of the same key
+   * are run in order.
+   *
+   * @param key the ordering key, usually the task id
+   * @param notification the notification to run
+   * @param droppable whether the notification may be dropped if the lane's queue
+   * exceeds the capacity
+   */
+  public void execute(/*@NotNull*/ Object key, /*@NotNull*/ Runnable notification, boolean droppable) {
+    Util.checkNotNullArgument(key);
+    Util.checkNotNullArgument(notification);
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    ThreadPoolExecutor lane = lanes[(h & 0x7fffffff) % lanes.length];
+    if (droppable && !lane.isShutdown() && lane.getQueue().size() >= capacity) {
+      long count = dropped.incrementAndGet();
+      //a slow listener drops many events, only log the first and then at powers of two
+      if ((count & (count - 1)) == 0) {
+        log.warn("Listener queue is full, dropped event (" + count + " dropped so far)");
+      }
+      return;
+    }
+    lane.execute(notification);
+  }
+
+  /**
+   * @return the number of notifications dropped because a queue was full
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of notifications waiting to be run
+   */
+  public int getQueuedCount() {
+    int count = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      count += lane.getQueue().size();
+    }
+    return count;
+  }
+
+  public void shutdown() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+}
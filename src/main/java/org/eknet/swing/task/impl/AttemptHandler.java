@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+/**
+ * Is notified about the outcome of each attempt of a {@link TaskWorker}. The
+ * methods are invoked on the worker thread, before the worker is done.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:30
+ */
+interface AttemptHandler {
+
+  void succeeded(/*@NotNull*/ TaskWorker<?, ?> worker);
+
+  /**
+   * Invoked if the task of the given worker threw an exception. The worker has
+   * not been cancelled.
+   *
+   * @param worker
+   * @param cause
+   * @return the worker for the next attempt, or {@code null} if the task is not retried
+   */
+  /*@Nullable*/
+  <V, C> TaskWorker<V, C> failed(/*@NotNull*/ TaskWorker<V, C> worker, /*@NotNull*/ Exception cause);
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.ExceptionHandler;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskBatchListener;
+import org.eknet.swing.task.TaskChanges;
+import org.eknet.swing.task.TaskContext;
+import org.eknet.swing.task.TaskListener;
+
+/**
+ * Collects task events and delivers them to a {@link TaskBatchListener} once per
+ * EDT cycle. Events of the same task execution and property are merged into one.
+ * It is equal to any other instance wrapping the same batch listener, so it can
+ * be removed from an {@link EventEmitter} by a new instance.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 12:45
+ */
+class BatchingListener implements TaskListener, Runnable {
+
+  private final TaskBatchListener delegate;
+  private final ExceptionHandler<TaskListener> exceptionHandler;
+
+  private final Object lock = new Object();
+  private Map<TaskContext, Entry> pending = new LinkedHashMap<TaskContext, Entry>(); //guarded by lock
+  private int eventCount = 0; //guarded by lock
+  private boolean scheduled = false; //guarded by lock
+
+  BatchingListener(/*@NotNull*/ TaskBatchListener delegate, /*@NotNull*/ ExceptionHandler<TaskListener> exceptionHandler) {
+    Util.checkNotNullArgument(delegate);
+    Util.checkNotNullArgument(exceptionHandler);
+    this.delegate = delegate;
+    this.exceptionHandler = exceptionHandler;
+  }
+
+  @Override
+  public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+    synchronized (lock) {
+      Entry entry = entry(event.getSource());
+      entry.state = merge(entry.state, event);
+    }
+  }
+
+  @Override
+  public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+    synchronized (lock) {
+      Entry entry = entry(event.getSource());
+      entry.progress = merge(entry.progress, event);
+    }
+  }
+
+  @Override
+  public void phaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
+    synchronized (lock) {
+      Entry entry = entry(event.getSource());
+      entry.phase = merge(entry.phase, event);
+    }
+  }
+
+  private Entry entry(TaskContext context) {
+    eventCount++;
+    if (!scheduled) {
+      scheduled = true;
+      SwingUtilities.invokeLater(this);
+    }
+    Entry entry = pending.get(context);
+    if (entry == null) {
+      entry = new Entry();
+      pending.put(context, entry);
+    }
+    return entry;
+  }
+
+  private static <T> ChangeEvent<T> merge(ChangeEvent<T> previous, ChangeEvent<T> event) {
+    if (previous == null) {
+      return event;
+    }
+    return new ChangeEventImpl<T>(previous.getOldValue(), event.getNewValue(), event.getSource());
+  }
+
+  /**
+   * Delivers the collected events. Runs on the EDT.
+   */
+  @Override
+  public void run() {
+    Map<TaskContext, Entry> entries;
+    int count;
+    synchronized (lock) {
+      entries = pending;
+      count = eventCount;
+      pending = new LinkedHashMap<TaskContext, Entry>();
+      eventCount = 0;
+      scheduled = false;
+    }
+    if (entries.isEmpty()) {
+      return;
+    }
+    List<ChangeEvent<State>> states = new ArrayList<ChangeEvent<State>>(entries.size());
+    List<ChangeEvent<Integer>> progress = new ArrayList<ChangeEvent<Integer>>(entries.size());
+    List<ChangeEvent<String>> phases = new ArrayList<ChangeEvent<String>>(entries.size());
+    for (Entry entry : entries.values()) {
+      if (entry.state != null) {
+        states.add(entry.state);
+      }
+      if (entry.progress != null) {
+        progress.add(entry.progress);
+      }
+      if (entry.phase != null) {
+        phases.add(entry.phase);
+      }
+    }
+    try {
+      delegate.tasksChanged(new Changes(states, progress, phases, count));
+    } catch (Throwable t) {
+      try {
+        exceptionHandler.handleException(this, t);
+      } catch (Throwable e) {
+        Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof BatchingListener && delegate.equals(((BatchingListener) o).delegate);
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+
+  private static final class Entry {
+    private ChangeEvent<State> state;
+    private ChangeEvent<Integer> progress;
+    private ChangeEvent<String> phase;
+  }
+
+  private static final class Changes implements TaskChanges {
+    private final List<ChangeEvent<State>> states;
+    private final List<ChangeEvent<Integer>> progress;
+    private final List<ChangeEvent<String>> phases;
+    private final int eventCount;
+
+    private Changes(List<ChangeEvent<State>> states, List<ChangeEvent<Integer>> progress, List<ChangeEvent<String>> phases, int eventCount) {
+      this.states = Collections.unmodifiableList(states);
+      this.progress = Collections.unmodifiableList(progress);
+      this.phases = Collections.unmodifiableList(phases);
+      this.eventCount = eventCount;
+    }
+
+    /*@NotNull*/
+    @Override
+    public List<ChangeEvent<State>> getStateChanges() {
+      return states;
+    }
+
+    /*@NotNull*/
+    @Override
+    public List<ChangeEvent<Integer>> getProgressChanges() {
+      return progress;
+    }
+
+    /*@NotNull*/
+    @Override
+    public List<ChangeEvent<String>> getPhaseChanges() {
+      return phases;
+    }
+
+    @Override
+    public int getEventCount() {
+      return eventCount;
+    }
+
+    @Override
+    public String toString() {
+      return "TaskChanges{" +
+              "states=" + states +
+              ", progress=" + progress +
+              ", phases=" + phases +
+              ", eventCount=" + eventCount +
+              '}';
+    }
+  }
+}
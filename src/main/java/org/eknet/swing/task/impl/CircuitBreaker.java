@@ -0,0 +1,162 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eknet.swing.task.CircuitState;
+
+/**
+ * Circuit breakers for tasks, one per {@link org.eknet.swing.task.Task#getId() task id}.
+ * <p/>
+ * After {@code failureThreshold} consecutive failures of tasks with the same id, the
+ * circuit for this id is {@link CircuitState#OPEN opened} and tasks fail immediately
+ * with a {@link org.eknet.swing.task.CircuitOpenException}. After {@code openTime}
+ * a single trial task is executed. If it succeeds the circuit is closed, otherwise
+ * it is opened again.
+ * <p/>
+ * Only closed circuits with failures are held, so the number of entries is bounded by
+ * the number of failing ids.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:35
+ */
+public class CircuitBreaker {
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private final Map<String, Circuit> circuits = new HashMap<String, Circuit>(); //guarded by itself
+
+  /**
+   * @param failureThreshold the number of consecutive failures that open a circuit
+   * @param openTime the time a circuit stays open, before a trial task is executed
+   * @param unit the unit of {@code openTime}
+   */
+  public CircuitBreaker(int failureThreshold, long openTime, /*@NotNull*/ TimeUnit unit) {
+    Util.checkNotNullArgument(unit);
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("failureThreshold must be >= 1: " + failureThreshold);
+    }
+    this.failureThreshold = failureThreshold;
+    this.openNanos = unit.toNanos(openTime);
+  }
+
+  /*@NotNull*/
+  public CircuitState getState(/*@NotNull*/ String id) {
+    Util.checkNotNullArgument(id);
+    synchronized (circuits) {
+      Circuit circuit = circuits.get(id);
+      if (circuit == null) {
+        return CircuitState.CLOSED;
+      }
+      if (circuit.state == CircuitState.OPEN && System.nanoTime() - circuit.openedAt >= openNanos) {
+        return CircuitState.HALF_OPEN;
+      }
+      return circuit.state;
+    }
+  }
+
+  /**
+   * Closes the circuit for the given id.
+   *
+   * @param id
+   */
+  public void reset(/*@NotNull*/ String id) {
+    Util.checkNotNullArgument(id);
+    synchronized (circuits) {
+      circuits.remove(id);
+    }
+  }
+
+  /**
+   * Decides whether the given worker may run. If the circuit of its task is half
+   * open, the worker becomes the trial.
+   *
+   * @param worker
+   * @return {@code true} if the worker may run, {@code false} if it must fail
+   */
+  boolean tryAcquire(/*@NotNull*/ final TaskWorker<?, ?> worker) {
+    final String id = worker.getTask().getId();
+    synchronized (circuits) {
+      final Circuit circuit = circuits.get(id);
+      if (circuit == null || circuit.state == CircuitState.CLOSED) {
+        return true;
+      }
+      if (circuit.trial != null) {
+        return false;
+      }
+      if (circuit.state == CircuitState.OPEN && System.nanoTime() - circuit.openedAt < openNanos) {
+        return false;
+      }
+      circuit.state = CircuitState.HALF_OPEN;
+      circuit.trial = worker;
+    }
+    //a trial that is cancelled gives way to the next one
+    worker.addFinishHook(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (circuits) {
+          Circuit circuit = circuits.get(id);
+          if (circuit != null && circuit.trial == worker) {
+            circuit.trial = null;
+          }
+        }
+      }
+    });
+    return true;
+  }
+
+  void recordSuccess(/*@NotNull*/ TaskWorker<?, ?> worker) {
+    synchronized (circuits) {
+      circuits.remove(worker.getTask().getId());
+    }
+  }
+
+  /**
+   * @param worker
+   * @return the state of the circuit after recording the failure
+   */
+  CircuitState recordFailure(/*@NotNull*/ TaskWorker<?, ?> worker) {
+    String id = worker.getTask().getId();
+    synchronized (circuits) {
+      Circuit circuit = circuits.get(id);
+      if (circuit == null) {
+        circuit = new Circuit();
+        circuits.put(id, circuit);
+      }
+      circuit.failures++;
+      if (circuit.trial == worker) {
+        circuit.trial = null;
+      }
+      if (circuit.state == CircuitState.HALF_OPEN || circuit.failures >= failureThreshold) {
+        circuit.state = CircuitState.OPEN;
+        circuit.openedAt = System.nanoTime();
+      }
+      return circuit.state;
+    }
+  }
+
+  private static class Circuit {
+    private CircuitState state = CircuitState.CLOSED;
+    private int failures;
+    private long openedAt;
+    private TaskWorker<?, ?> trial;
+  }
+}
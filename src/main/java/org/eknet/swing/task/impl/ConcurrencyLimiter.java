@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Limits the number of concurrently running {@link TaskWorker}s per key.
+ * <p/>
+ * Each key has a queue of waiting workers. If less than the given limit of workers
+ * are running for a key, a worker is passed to the downstream executor immediately.
+ * Otherwise it is queued and passed on once a running worker of the same key has
+ * finished. Thus no thread is blocked while waiting. With a limit of {@code 1}, workers
+ * of the same key run one after another in submission order. Waiting workers that are
+ * cancelled are removed from the queue. Keys without running or waiting workers are
+ * removed.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:55
+ */
+public class ConcurrencyLimiter {
+
+  private final Executor downstream;
+  private final Map<String, Slot> slots = new HashMap<String, Slot>(); //guarded by itself
+
+  public ConcurrencyLimiter(/*@NotNull*/ Executor downstream) {
+    Util.checkNotNullArgument(downstream);
+    this.downstream = downstream;
+  }
+
+  public void execute(/*@NotNull*/ final String key, int limit, /*@NotNull*/ final TaskWorker<?, ?> worker) {
+    Util.checkNotNullArgument(key);
+    Util.checkNotNullArgument(worker);
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive: " + limit);
+    }
+    boolean queued;
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      if (slot == null) {
+        slot = new Slot(limit);
+        slots.put(key, slot);
+      }
+      slot.limit = limit;
+      if (slot.running >= limit) {
+        slot.waiting.add(worker);
+        queued = true;
+      } else {
+        slot.running++;
+        queued = false;
+      }
+    }
+    if (!queued) {
+      run(key, worker);
+      return;
+    }
+    //a worker cancelled while waiting is finished without being run
+    worker.addFinishHook(new Runnable() {
+      @Override
+      public void run() {
+        removeWaiting(key, worker);
+      }
+    });
+  }
+
+  private void removeWaiting(String key, TaskWorker<?, ?> worker) {
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      if (slot != null) {
+        slot.waiting.remove(worker);
+      }
+    }
+  }
+
+  private void run(final String key, TaskWorker<?, ?> worker) {
+    worker.addFinishHook(new Runnable() {
+      @Override
+      public void run() {
+        TaskWorker<?, ?> next = next(key);
+        if (next != null) {
+          ConcurrencyLimiter.this.run(key, next);
+        }
+      }
+    });
+    downstream.execute(worker);
+  }
+
+  private TaskWorker<?, ?> next(String key) {
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      slot.running--;
+      if (slot.running >= slot.limit) {
+        return null;
+      }
+      TaskWorker<?, ?> next = slot.waiting.poll();
+      //skip workers that have been cancelled while waiting
+      while (next != null && next.isDone()) {
+        next = slot.waiting.poll();
+      }
+      if (next != null) {
+        slot.running++;
+      } else if (slot.running == 0) {
+        slots.remove(key);
+      }
+      return next;
+    }
+  }
+
+  /**
+   * Returns the number of workers waiting for the given key.
+   *
+   * @param key
+   * @return the number of waiting workers
+   */
+  public int getWaitingCount(/*@NotNull*/ String key) {
+    Util.checkNotNullArgument(key);
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      return slot != null ? slot.getWaitingCount() : 0;
+    }
+  }
+
+  /**
+   * Returns the number of workers currently running for the given key.
+   *
+   * @param key
+   * @return the number of running workers
+   */
+  public int getRunningCount(/*@NotNull*/ String key) {
+    Util.checkNotNullArgument(key);
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      return slot != null ? slot.running : 0;
+    }
+  }
+
+  /**
+   * Returns the number of waiting workers of all keys that have any.
+   *
+   * @return a snapshot of waiting workers per key
+   */
+  public Map<String, Integer> getWaitingCounts() {
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    synchronized (slots) {
+      for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+        int count = entry.getValue().getWaitingCount();
+        if (count > 0) {
+          counts.put(entry.getKey(), count);
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static final class Slot {
+    private final Queue<TaskWorker<?, ?>> waiting = new ArrayDeque<TaskWorker<?, ?>>();
+    private int limit;
+    private int running = 0;
+
+    private Slot(int limit) {
+      this.limit = limit;
+    }
+
+    /**
+     * Counts the waiting workers, except the ones that have been cancelled but not
+     * yet removed from the queue.
+     */
+    private int getWaitingCount() {
+      int count = 0;
+      for (TaskWorker<?, ?> worker : waiting) {
+        if (!worker.isDone()) {
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskCallback;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskManager;
+
+/**
+ * Executes tasks after a quiet period, such that only the latest of a burst of tasks
+ * with the same {@link Task#getId() id} is executed.
+ * <p/>
+ * Each submitted task is created immediately but executed only if no other task with
+ * the same id is submitted within the quiet period. A new submission cancels the
+ * previous task with the same id, whether it is still waiting or already running.
+ * Thus only the latest task completes with {@link Task#done(Object)}, superseded ones
+ * fail with a {@link java.util.concurrent.CancellationException}. If the scheduler
+ * is shut down, a submitted task is cancelled immediately.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 17:30
+ */
+public class Debouncer {
+  private final static Logger log = LoggerFactory.getLogger(Debouncer.class);
+
+  private final TaskManager taskManager;
+  private final ScheduledExecutorService scheduler;
+
+  private final Map<String, Entry> latest = new HashMap<String, Entry>(); //guarded by itself
+
+  public Debouncer(/*@NotNull*/ TaskManager taskManager, /*@NotNull*/ ScheduledExecutorService scheduler) {
+    Util.checkNotNullArgument(taskManager);
+    Util.checkNotNullArgument(scheduler);
+    this.taskManager = taskManager;
+    this.scheduler = scheduler;
+  }
+
+  /*@NotNull*/
+  public <V, C> TaskControl<V> submit(/*@NotNull*/ Task<V, C> task, long quietPeriod, /*@NotNull*/ TimeUnit unit) {
+    Util.checkNotNullArgument(task);
+    Util.checkNotNullArgument(unit);
+    final String id = task.getId();
+    final TaskControl<V> control = taskManager.create(task);
+    final Entry entry = new Entry(control);
+    Entry previous;
+    synchronized (latest) {
+      try {
+        entry.future = scheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            synchronized (latest) {
+              if (latest.get(id) != entry) {
+                return;
+              }
+            }
+            control.execute();
+          }
+        }, quietPeriod, unit);
+      } catch (RejectedExecutionException e) {
+        //the scheduler is shut down, so the task could never be executed
+        log.debug("Cannot schedule task '{}'. Cancelling it.", id);
+        control.cancel();
+        return control;
+      }
+      //the entry is only added once it is scheduled
+      previous = latest.put(id, entry);
+    }
+    //keep the entry while the task runs, so a newer submission can still cancel it
+    control.getFuture().addCallback(new TaskCallback<V>() {
+      @Override
+      public void done(V value) {
+        remove();
+      }
+
+      @Override
+      public void failed(Throwable cause) {
+        remove();
+      }
+
+      private void remove() {
+        synchronized (latest) {
+          if (latest.get(id) == entry) {
+            latest.remove(id);
+          }
+        }
+      }
+    }, Util.DIRECT_EXECUTOR);
+    if (previous != null) {
+      log.debug("Task '{}' superseded by execution {}", id, control.getContext().getContextId());
+      previous.future.cancel(false);
+      previous.control.cancel();
+    }
+    return control;
+  }
+
+  /**
+   * Cancels all tasks that are still waiting for the end of their quiet period.
+   * Tasks that are already executing are not affected.
+   */
+  public void cancelPending() {
+    List<Entry> pending = new ArrayList<Entry>();
+    synchronized (latest) {
+      Iterator<Entry> iter = latest.values().iterator();
+      while (iter.hasNext()) {
+        Entry entry = iter.next();
+        if (entry.future.cancel(false)) {
+          pending.add(entry);
+          iter.remove();
+        }
+      }
+    }
+    for (Entry entry : pending) {
+      entry.control.cancel();
+    }
+  }
+
+  private static final class Entry {
+    private final TaskControl<?> control;
+    private ScheduledFuture<?> future;
+
+    private Entry(TaskControl<?> control) {
+      this.control = control;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import javax.swing.SwingUtilities;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.Delivery;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskListener;
+
+/**
+ * Wraps a {@link TaskListener} and notifies it on the thread specified by a
+ * {@link Delivery}. It is equal to the listener it wraps, so it can be removed
+ * from an {@link EventEmitter} by using the original listener.
+ * <p/>
+ * Exceptions thrown by the listener on another thread are handled by the
+ * exception handler of the emitter it was registered with.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:40
+ */
+class DeliveringListener implements TaskListener {
+
+  private final TaskListener delegate;
+  private final Delivery delivery;
+  private final AsyncListenerDispatcher dispatcher;
+  private final EventEmitter<TaskListener> emitter;
+
+  private DeliveringListener(TaskListener delegate, Delivery delivery, AsyncListenerDispatcher dispatcher, EventEmitter<TaskListener> emitter) {
+    this.delegate = delegate;
+    this.delivery = delivery;
+    this.dispatcher = dispatcher;
+    this.emitter = emitter;
+  }
+
+  /**
+   * Returns a listener to register with the given emitter that notifies the given
+   * listener according to the delivery. For {@link Delivery#CALLER} this is the
+   * listener itself.
+   */
+  static TaskListener wrap(/*@NotNull*/ TaskListener listener, /*@NotNull*/ Delivery delivery,
+                           /*@NotNull*/ AsyncListenerDispatcher dispatcher, /*@NotNull*/ EventEmitter<TaskListener> emitter) {
+    Util.checkNotNullArgument(listener);
+    Util.checkNotNullArgument(delivery);
+    if (delivery == Delivery.CALLER) {
+      return listener;
+    }
+    return new DeliveringListener(listener, delivery, dispatcher, emitter);
+  }
+
+  public TaskListener getDelegate() {
+    return delegate;
+  }
+
+  public Delivery getDelivery() {
+    return delivery;
+  }
+
+  @Override
+  public void stateChanged(final ChangeEvent<State> event) {
+    deliver(event, false, new Runnable() {
+      @Override
+      public void run() {
+        delegate.stateChanged(event);
+      }
+    });
+  }
+
+  @Override
+  public void progressChanged(final ChangeEvent<Integer> event) {
+    deliver(event, true, new Runnable() {
+      @Override
+      public void run() {
+        delegate.progressChanged(event);
+      }
+    });
+  }
+
+  @Override
+  public void phaseChanged(final ChangeEvent<String> event) {
+    deliver(event, true, new Runnable() {
+      @Override
+      public void run() {
+        delegate.phaseChanged(event);
+      }
+    });
+  }
+
+  private void deliver(ChangeEvent<?> event, boolean droppable, final Runnable notification) {
+    if (delivery == Delivery.EDT && SwingUtilities.isEventDispatchThread()) {
+      //the emitter handles exceptions itself
+      notification.run();
+      return;
+    }
+    Runnable guarded = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          notification.run();
+        } catch (Throwable t) {
+          try {
+            emitter.getExceptionHandler().handleException(delegate, t);
+          } catch (Throwable e) {
+            Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+          }
+        }
+      }
+    };
+    if (delivery == Delivery.EDT) {
+      EdtExecutor.INSTANCE.execute(guarded);
+    } else {
+      dispatcher.execute(event.getSource().getTask().getId(), guarded, droppable);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof DeliveringListener) {
+      return delegate.equals(((DeliveringListener) o).delegate);
+    }
+    return delegate.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return delegate + " (" + delivery + ")";
+  }
+}
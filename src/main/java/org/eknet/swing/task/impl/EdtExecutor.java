@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Executes commands on the EDT. If called from the EDT, the command is
+ * run immediately.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:15
+ */
+public final class EdtExecutor implements Executor {
+
+  public static final EdtExecutor INSTANCE = new EdtExecutor();
+
+  private EdtExecutor() {}
+
+  @Override
+  public void execute(/*@NotNull*/ Runnable command) {
+    Util.checkNotNullArgument(command);
+    if (SwingUtilities.isEventDispatchThread()) {
+      command.run();
+    } else {
+      SwingUtilities.invokeLater(command);
+    }
+  }
+}
@@ -36,9 +36,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EventListener;
 import java.util.Iterator;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,31 +51,36 @@ import org.eknet.swing.task.ExceptionHandler;
 // note, this is a modified version from the same named class in Raffael Herzogs "cru-beans" project.
 
 /**
+ * Holds a list of listeners and notifies them about events.
+ * <p/>
+ * Events can be fired in two ways: {@link #fire(Notifier, Object)} calls each listener
+ * directly through the given {@link Notifier}, which involves no reflection and no
+ * allocation per event. The proxy returned by {@link #emitter()} implements the listener
+ * interface and dispatches via reflection; it is created lazily on first use and only
+ * kept for convenience.
+ * <p/>
+ * Exceptions thrown by listeners are passed to the {@link ExceptionHandler} in both cases.
+ *
  * @author <a href="mailto:herzog@raffael.ch">Raffael Herzog</a>
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  */
 public class EventEmitter<T extends EventListener> implements Iterable<T> {
   private static final Logger log = LoggerFactory.getLogger(EventEmitter.class);
 
+  private static final Object[] NO_LISTENERS = new Object[0];
+
   private final Class<T> listenerClass;
-  private final CopyOnWriteArrayList<T> listeners = new CopyOnWriteArrayList<T>();
-  private final T emitter;
+  private final ClassLoader loader;
+  private final Object lock = new Object();
+  private volatile Object[] listeners = NO_LISTENERS;
+  private volatile T emitter;
 
   private volatile ExceptionHandler<T> exceptionHandler = ExceptionHandler.RETHROW_EXCEPTION_HANDLER;
 
-  @SuppressWarnings({"unchecked"})
   public EventEmitter(/*@NotNull*/ Class<T> clazz, ClassLoader loader, ExceptionHandler<T> handler) {
     Util.checkNotNullArgument(clazz);
-    ClassLoader l = loader;
-    if (l == null) {
-      l = clazz.getClassLoader();
-      if (l == null) {
-        log.warn("Given ClassLoader is null. Using ContextClassLoader from current thread.");
-        l = Thread.currentThread().getContextClassLoader();
-      }
-    }
-    emitter = (T) Proxy.newProxyInstance(l, new Class<?>[]{clazz}, createInvocationHandler());
     this.listenerClass = clazz;
+    this.loader = loader;
     if (handler != null) {
       this.exceptionHandler = handler;
     }
@@ -92,21 +100,37 @@ public class EventEmitter<T extends EventListener> implements Iterable<T> {
   }
 
   public static <T extends EventListener> EventEmitter<T> newEmitter(Class<T> listenerClass, ClassLoader loader, ExceptionHandler<T> handler) {
-    return new EventEmitter<T>(listenerClass, loader, null);
+    return new EventEmitter<T>(listenerClass, loader, handler);
   }
 
 
   public void addListener(T listener) {
-    listeners.add(listener);
+    synchronized (lock) {
+      Object[] current = listeners;
+      Object[] next = Arrays.copyOf(current, current.length + 1);
+      next[current.length] = listener;
+      listeners = next;
+    }
   }
 
   public void removeListener(T listener) {
-    listeners.remove(listener);
+    synchronized (lock) {
+      Object[] current = listeners;
+      for (int i = 0; i < current.length; i++) {
+        if (current[i] == null ? listener == null : current[i].equals(listener)) {
+          Object[] next = new Object[current.length - 1];
+          System.arraycopy(current, 0, next, 0, i);
+          System.arraycopy(current, i + 1, next, i, next.length - i);
+          listeners = next.length == 0 ? NO_LISTENERS : next;
+          return;
+        }
+      }
+    }
   }
 
   @SuppressWarnings({"unchecked", "SuspiciousSystemArraycopy"})
   public T[] getListeners() {
-    Object[] objArray = listeners.toArray();
+    Object[] objArray = listeners;
     T[] listeners = (T[]) Array.newInstance(listenerClass, objArray.length);
     System.arraycopy(objArray, 0, listeners, 0, objArray.length);
     return listeners;
@@ -118,26 +142,105 @@ public class EventEmitter<T extends EventListener> implements Iterable<T> {
     }
   }
 
+  public ExceptionHandler<T> getExceptionHandler() {
+    return exceptionHandler;
+  }
+
   public int getListenerCount() {
-    return listeners.size();
+    return listeners.length;
   }
 
   public boolean isEmpty() {
-    return listeners.isEmpty();
+    return listeners.length == 0;
   }
 
+  @SuppressWarnings({"unchecked"})
   public Iterator<T> iterator() {
-    return listeners.iterator();
+    List<T> list = (List<T>) (List<?>) Arrays.asList(listeners);
+    return Collections.unmodifiableList(list).iterator();
   }
 
+  /**
+   * Notifies all listeners using the given notifier. The listeners are called in the order
+   * they have been added. If a listener throws an exception, the {@link ExceptionHandler}
+   * decides whether the remaining listeners are notified.
+   *
+   * @param notifier calls the listener method
+   * @param event the event to pass to each listener
+   */
+  @SuppressWarnings({"unchecked"})
+  public <E> void fire(/*@NotNull*/ Notifier<? super T, ? super E> notifier, E event) {
+    Object[] current = listeners;
+    for (int i = 0; i < current.length; i++) {
+      T l = (T) current[i];
+      try {
+        notifier.notify(l, event);
+      } catch (Throwable t) {
+        if (!handleException(l, t)) {
+          break;
+        }
+      }
+    }
+  }
+
+  private boolean handleException(T listener, Throwable t) {
+    try {
+      return exceptionHandler.handleException(listener, t);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    }
+  }
+
+  /**
+   * Returns a proxy implementing the listener interface that forwards each call to all
+   * listeners. Prefer {@link #fire(Notifier, Object)}, which avoids reflection.
+   *
+   * @return the proxy
+   */
+  @SuppressWarnings({"unchecked"})
   public T emitter() {
-    return emitter;
+    T e = emitter;
+    if (e == null) {
+      synchronized (lock) {
+        e = emitter;
+        if (e == null) {
+          ClassLoader l = loader;
+          if (l == null) {
+            l = listenerClass.getClassLoader();
+            if (l == null) {
+              log.warn("Given ClassLoader is null. Using ContextClassLoader from current thread.");
+              l = Thread.currentThread().getContextClassLoader();
+            }
+          }
+          e = (T) Proxy.newProxyInstance(l, new Class<?>[]{listenerClass}, createInvocationHandler());
+          emitter = e;
+        }
+      }
+    }
+    return e;
   }
 
   protected InvocationHandler createInvocationHandler() {
     return new EventInvocationHandler();
   }
 
+  /**
+   * Calls one method of a listener. Implementations are usually stateless constants, so
+   * that firing an event does not allocate anything.
+   *
+   * @param <T> the listener type
+   * @param <E> the event type
+   */
+  public static interface Notifier<T extends EventListener, E> {
+
+    void notify(T listener, E event);
+
+  }
+
   protected class EventInvocationHandler implements InvocationHandler {
 
     @Override
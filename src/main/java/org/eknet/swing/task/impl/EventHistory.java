@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskEventHistory;
+import org.eknet.swing.task.TaskListener;
+
+/**
+ * Records task events in a ring buffer. It registers itself as global listener
+ * while its capacity is greater than <code>0</code>.
+ * <p/>
+ * Subscribers are not given copies of the buffer. Each one has a cursor and reads
+ * the events from the buffer until it has caught up. Only one thread at a time
+ * delivers to a subscriber, either the one that fired an event or the one that
+ * subscribed, so each subscriber gets the events in order.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:25
+ */
+public class EventHistory implements TaskEventHistory, TaskListener {
+  private final static Logger log = LoggerFactory.getLogger(EventHistory.class);
+
+  private final TaskListenerSupportImpl taskListenerSupport;
+  private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+
+  private final Object lock = new Object();
+  private ChangeEvent<?>[] events = new ChangeEvent<?>[0]; //guarded by lock
+  private byte[] kinds = new byte[0]; //guarded by lock
+  private volatile long latest = 0; //written with lock held
+
+  public EventHistory(/*@NotNull*/ TaskListenerSupportImpl taskListenerSupport) {
+    Util.checkNotNullArgument(taskListenerSupport);
+    this.taskListenerSupport = taskListenerSupport;
+  }
+
+  /**
+   * Sets the number of events to keep. The most recent events are kept when the
+   * capacity changes. A capacity of <code>0</code> stops recording, so that no events
+   * are created for it.
+   *
+   * @param capacity the number of events to keep, <code>0</code> to disable
+   */
+  public synchronized void setCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    boolean wasRecording;
+    synchronized (lock) {
+      wasRecording = events.length > 0;
+      ChangeEvent<?>[] newEvents = new ChangeEvent<?>[capacity];
+      byte[] newKinds = new byte[capacity];
+      if (capacity > 0) {
+        for (long seq = Math.max(getOldestSequence(), latest - capacity + 1); seq <= latest; seq++) {
+          newEvents[index(seq, capacity)] = events[index(seq, events.length)];
+          newKinds[index(seq, capacity)] = kinds[index(seq, kinds.length)];
+        }
+      }
+      events = newEvents;
+      kinds = newKinds;
+    }
+    if (capacity > 0 && !wasRecording) {
+      taskListenerSupport.addListener(this);
+    } else if (capacity == 0 && wasRecording) {
+      taskListenerSupport.removeListener(this);
+    }
+  }
+
+  private static int index(long seq, int capacity) {
+    return (int) (seq % capacity);
+  }
+
+  @Override
+  public int getCapacity() {
+    synchronized (lock) {
+      return events.length;
+    }
+  }
+
+  @Override
+  public long getLatestSequence() {
+    return latest;
+  }
+
+  @Override
+  public long getOldestSequence() {
+    synchronized (lock) {
+      return Math.max(1, latest - events.length + 1);
+    }
+  }
+
+  @Override
+  public long subscribe(long fromSequence, /*@NotNull*/ TaskListener listener) {
+    Util.checkNotNullArgument(listener);
+    Subscriber subscriber;
+    synchronized (lock) {
+      if (events.length == 0) {
+        throw new IllegalStateException("The event history is disabled");
+      }
+      subscriber = new Subscriber(listener, Math.max(fromSequence, getOldestSequence()));
+      subscribers.add(subscriber);
+    }
+    long first = subscriber.cursor;
+    subscriber.drain();
+    return first;
+  }
+
+  @Override
+  public void unsubscribe(TaskListener listener) {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.listener.equals(listener)) {
+        subscriber.cancelled = true;
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  private void record(byte kind, ChangeEvent<?> event) {
+    synchronized (lock) {
+      if (events.length == 0) {
+        return;
+      }
+      long seq = latest + 1;
+      events[index(seq, events.length)] = event;
+      kinds[index(seq, kinds.length)] = kind;
+      latest = seq;
+    }
+    for (Subscriber subscriber : subscribers) {
+      subscriber.drain();
+    }
+  }
+
+  @Override
+  public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+    record((byte) TaskListenerEmitter.STATE, event);
+  }
+
+  @Override
+  public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+    record((byte) TaskListenerEmitter.PROGRESS, event);
+  }
+
+  @Override
+  public void phaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
+    record((byte) TaskListenerEmitter.PHASE, event);
+  }
+
+  private class Subscriber {
+    private final TaskListener listener;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile long cursor; //written while draining
+    private volatile boolean cancelled = false;
+
+    private Subscriber(TaskListener listener, long cursor) {
+      this.listener = listener;
+      this.cursor = cursor;
+    }
+
+    /**
+     * Delivers all events up to the latest one. If another thread is already
+     * delivering, it picks up the new events.
+     */
+    void drain() {
+      while (cursor <= latest && !cancelled) {
+        if (!draining.compareAndSet(false, true)) {
+          return;
+        }
+        try {
+          while (cursor <= latest && !cancelled) {
+            deliverNext();
+          }
+        } finally {
+          draining.set(false);
+        }
+      }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private void deliverNext() {
+      long seq = cursor;
+      ChangeEvent<?> event;
+      byte kind;
+      synchronized (lock) {
+        long oldest = getOldestSequence();
+        if (seq < oldest) {
+          log.warn("Listener '" + listener + "' missed " + (oldest - seq) + " events of the history");
+          cursor = oldest;
+          return;
+        }
+        event = events[index(seq, events.length)];
+        kind = kinds[index(seq, kinds.length)];
+      }
+      cursor = seq + 1;
+      try {
+        switch (kind) {
+          case TaskListenerEmitter.STATE:
+            listener.stateChanged((ChangeEvent<State>) event);
+            break;
+          case TaskListenerEmitter.PROGRESS:
+            listener.progressChanged((ChangeEvent<Integer>) event);
+            break;
+          case TaskListenerEmitter.PHASE:
+            listener.phaseChanged((ChangeEvent<String>) event);
+            break;
+        }
+      } catch (Throwable t) {
+        log.error("Listener '" + listener + "' threw an exception: " + t.getMessage(), t);
+      }
+    }
+  }
+}
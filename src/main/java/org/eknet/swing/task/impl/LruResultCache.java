@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eknet.swing.task.ResultCache;
+
+/**
+ * A {@link ResultCache} that evicts least recently used values.
+ * <p/>
+ * Values expire after a fixed time to live. The cache is bounded by a maximum number of
+ * entries and, if a {@link Weigher} is given, by a maximum total weight. Hit, miss and
+ * eviction counts are recorded.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 13:15
+ */
+public class LruResultCache implements ResultCache {
+
+  private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+
+  private final int maxEntries;
+  private final long maxWeight;
+  private final long ttlNanos;
+  private final Weigher weigher;
+
+  //all guarded by entries
+  private long totalWeight = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  public LruResultCache(int maxEntries, long ttl, /*@NotNull*/ TimeUnit unit) {
+    this(maxEntries, ttl, unit, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxEntries the maximum number of values to keep
+   * @param ttl the time after which a value expires
+   * @param unit the unit of {@code ttl}
+   * @param maxWeight the maximum total weight of all values
+   * @param weigher computes the weight of a value, if {@code null} every value has a weight of 1
+   */
+  public LruResultCache(int maxEntries, long ttl, /*@NotNull*/ TimeUnit unit, long maxWeight, /*@Nullable*/ Weigher weigher) {
+    Util.checkNotNullArgument(unit);
+    if (maxEntries <= 0 || maxWeight <= 0 || ttl <= 0) {
+      throw new IllegalArgumentException("Cache bounds must be positive");
+    }
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.weigher = weigher;
+  }
+
+  @Override
+  public Object get(/*@NotNull*/ String key) {
+    Util.checkNotNullArgument(key);
+    synchronized (entries) {
+      CacheEntry entry = entries.get(key);
+      if (entry != null && entry.isExpired(System.nanoTime())) {
+        remove(key);
+        entry = null;
+      }
+      if (entry == null) {
+        missCount++;
+        return null;
+      }
+      hitCount++;
+      return entry.value;
+    }
+  }
+
+  @Override
+  public void put(/*@NotNull*/ String key, /*@Nullable*/ Object value) {
+    Util.checkNotNullArgument(key);
+    if (value == null) {
+      return;
+    }
+    int weight = weigher != null ? weigher.weigh(key, value) : 1;
+    CacheEntry entry = new CacheEntry(value, weight, System.nanoTime() + ttlNanos);
+    synchronized (entries) {
+      CacheEntry old = entries.put(key, entry);
+      if (old != null) {
+        totalWeight -= old.weight;
+      }
+      totalWeight += weight;
+      evict();
+    }
+  }
+
+  private void evict() {
+    long now = System.nanoTime();
+    Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+    while (iter.hasNext() && (entries.size() > maxEntries || totalWeight > maxWeight)) {
+      CacheEntry entry = iter.next().getValue();
+      iter.remove();
+      totalWeight -= entry.weight;
+      if (!entry.isExpired(now)) {
+        evictionCount++;
+      }
+    }
+  }
+
+  private void remove(String key) {
+    CacheEntry entry = entries.remove(key);
+    if (entry != null) {
+      totalWeight -= entry.weight;
+    }
+  }
+
+  @Override
+  public void invalidate(/*@NotNull*/ String key) {
+    Util.checkNotNullArgument(key);
+    synchronized (entries) {
+      remove(key);
+    }
+  }
+
+  @Override
+  public void invalidate(/*@NotNull*/ Filter filter) {
+    Util.checkNotNullArgument(filter);
+    synchronized (entries) {
+      Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+      while (iter.hasNext()) {
+        Map.Entry<String, CacheEntry> next = iter.next();
+        if (filter.apply(next.getKey(), next.getValue().value)) {
+          iter.remove();
+          totalWeight -= next.getValue().weight;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+      totalWeight = 0;
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long getTotalWeight() {
+    synchronized (entries) {
+      return totalWeight;
+    }
+  }
+
+  public long getHitCount() {
+    synchronized (entries) {
+      return hitCount;
+    }
+  }
+
+  public long getMissCount() {
+    synchronized (entries) {
+      return missCount;
+    }
+  }
+
+  /**
+   * @return the number of values removed to keep the cache within its bounds
+   */
+  public long getEvictionCount() {
+    synchronized (entries) {
+      return evictionCount;
+    }
+  }
+
+  @Override
+  public String toString() {
+    synchronized (entries) {
+      return "LruResultCache{" +
+              "size=" + entries.size() +
+              ", totalWeight=" + totalWeight +
+              ", hitCount=" + hitCount +
+              ", missCount=" + missCount +
+              ", evictionCount=" + evictionCount +
+              '}';
+    }
+  }
+
+  /**
+   * Computes the weight of a cached value.
+   */
+  public interface Weigher {
+
+    int weigh(/*@NotNull*/ String key, /*@NotNull*/ Object value);
+
+  }
+
+  private static final class CacheEntry {
+    private final Object value;
+    private final int weight;
+    private final long expires;
+
+    private CacheEntry(Object value, int weight, long expires) {
+      this.value = value;
+      this.weight = weight;
+      this.expires = expires;
+    }
+
+    private boolean isExpired(long now) {
+      return now - expires >= 0;
+    }
+  }
+}
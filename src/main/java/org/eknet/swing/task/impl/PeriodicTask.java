@@ -0,0 +1,193 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.ScheduledTask;
+import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskCallback;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskManager;
+
+/**
+ * Executes a task periodically, either at a fixed rate or with a fixed delay between
+ * the end of a run and the start of the next one. The timing is done by a scheduler,
+ * each run is created and executed by the task manager.
+ * <p/>
+ * At a fixed rate, a run is skipped if the previous one is still executing (or
+ * waiting for a retry). The periodic execution stops, if the task manager rejects
+ * the task because it has been shut down.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:45
+ */
+public class PeriodicTask<V, C> implements ScheduledTask<V>, Runnable {
+  private final static Logger log = LoggerFactory.getLogger(PeriodicTask.class);
+
+  private final TaskManager taskManager;
+  private final ScheduledExecutorService scheduler;
+  private final Task<V, C> task;
+  private final long delay;
+  private final boolean fixedRate;
+
+  private final AtomicInteger runCount = new AtomicInteger(0);
+  private final AtomicInteger skipCount = new AtomicInteger(0);
+
+  private volatile TaskControl<V> lastRun;
+  private volatile boolean cancelled = false;
+  private ScheduledFuture<?> future; //guarded by this
+
+  /**
+   * @param taskManager the manager to create the runs with
+   * @param scheduler the scheduler to time the runs with
+   * @param task the task to execute
+   * @param delay the period or the delay between runs
+   * @param unit the unit of {@code delay}
+   * @param fixedRate whether {@code delay} is a fixed rate or a fixed delay
+   */
+  public PeriodicTask(/*@NotNull*/ TaskManager taskManager, /*@NotNull*/ ScheduledExecutorService scheduler,
+                      /*@NotNull*/ Task<V, C> task, long delay, /*@NotNull*/ TimeUnit unit, boolean fixedRate) {
+    Util.checkNotNullArgument(taskManager);
+    Util.checkNotNullArgument(scheduler);
+    Util.checkNotNullArgument(task);
+    Util.checkNotNullArgument(unit);
+    if (delay <= 0) {
+      throw new IllegalArgumentException("delay must be > 0: " + delay);
+    }
+    this.taskManager = taskManager;
+    this.scheduler = scheduler;
+    this.task = task;
+    this.delay = unit.toNanos(delay);
+    this.fixedRate = fixedRate;
+  }
+
+  /**
+   * Schedules the first run.
+   *
+   * @param initialDelay
+   * @param unit
+   */
+  public synchronized void start(long initialDelay, /*@NotNull*/ TimeUnit unit) {
+    Util.checkNotNullArgument(unit);
+    if (fixedRate) {
+      future = scheduler.scheduleAtFixedRate(this, unit.toNanos(initialDelay), delay, TimeUnit.NANOSECONDS);
+    } else {
+      future = scheduler.schedule(this, initialDelay, unit);
+    }
+  }
+
+  @Override
+  public void run() {
+    if (cancelled) {
+      return;
+    }
+    TaskControl<V> last = lastRun;
+    if (last != null && !last.getContext().getState().isFinalState()) {
+      skipCount.incrementAndGet();
+      log.debug("Skipping run of task '{}', the previous one is still executing", task.getId());
+      return;
+    }
+    TaskControl<V> control;
+    try {
+      control = taskManager.create(task);
+    } catch (RejectedExecutionException e) {
+      log.debug("Task '{}' has been rejected, stopping periodic execution", task.getId());
+      cancel();
+      return;
+    } catch (RuntimeException e) {
+      //an exception would silently stop the scheduler from running this again
+      log.error("Unable to create task '" + task.getId() + "'", e);
+      scheduleNext();
+      return;
+    }
+    lastRun = control;
+    runCount.incrementAndGet();
+    if (!fixedRate) {
+      control.getFuture().addCallback(new TaskCallback<V>() {
+        @Override
+        public void done(V value) {
+          scheduleNext();
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+          scheduleNext();
+        }
+      }, Util.DIRECT_EXECUTOR);
+    }
+    control.execute();
+  }
+
+  private synchronized void scheduleNext() {
+    if (fixedRate || cancelled) {
+      return;
+    }
+    try {
+      future = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      cancelled = true;
+    }
+  }
+
+  /*@Nullable*/
+  @Override
+  public TaskControl<V> getLastRun() {
+    return lastRun;
+  }
+
+  @Override
+  public int getRunCount() {
+    return runCount.get();
+  }
+
+  @Override
+  public int getSkipCount() {
+    return skipCount.get();
+  }
+
+  @Override
+  public synchronized void cancel() {
+    cancelled = true;
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public String toString() {
+    return "PeriodicTask{" +
+            "task=" + task.getId() +
+            ", fixedRate=" + fixedRate +
+            ", runCount=" + runCount +
+            ", skipCount=" + skipCount +
+            ", cancelled=" + cancelled +
+            '}';
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eknet.swing.task.Mode;
+import org.eknet.swing.task.Prioritized;
+import org.eknet.swing.task.Task;
+
+/**
+ * A {@link ThreadPoolExecutor} that orders pending work by priority instead of
+ * submission order.
+ * <p/>
+ * The priority of a {@link TaskWorker} is derived from the {@link Mode} of its task
+ * ({@link Mode#BLOCKING} first, then {@link Mode#BACKGROUND} and {@link Mode#SILENT})
+ * and from {@link Prioritized#getPriority()} if the task implements it. Other runnables
+ * are treated like background tasks with priority {@code 0}.
+ * <p/>
+ * To protect low priority work from starvation, each priority level is worth a fixed
+ * amount of waiting time (the {@code agingStep}). A pending task is overtaken by a task of
+ * a higher level only if it has waited less than the difference in levels times the aging
+ * step. Within the same level, work is executed in submission order. Levels are limited
+ * to the range {@link #MIN_LEVEL} to {@link #MAX_LEVEL}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 10:25
+ */
+public class PriorityTaskExecutor extends ThreadPoolExecutor {
+
+  public static final long DEFAULT_AGING_STEP_MILLIS = 5000L;
+
+  public static final long MIN_LEVEL = -16;
+  public static final long MAX_LEVEL = 16;
+
+  private final AtomicLong sequence = new AtomicLong(0);
+  private final long agingStepNanos;
+
+  public PriorityTaskExecutor(int poolSize, /*@NotNull*/ ThreadFactory threadFactory) {
+    this(poolSize, DEFAULT_AGING_STEP_MILLIS, TimeUnit.MILLISECONDS, threadFactory);
+  }
+
+  public PriorityTaskExecutor(int poolSize, long agingStep, /*@NotNull*/ TimeUnit unit, /*@NotNull*/ ThreadFactory threadFactory) {
+    this(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, unit.toNanos(agingStep), threadFactory);
+  }
+
+  protected PriorityTaskExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                 long agingStepNanos, /*@NotNull*/ ThreadFactory threadFactory) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, new PriorityBlockingQueue<Runnable>(), threadFactory);
+    this.agingStepNanos = agingStepNanos;
+  }
+
+  @Override
+  public void execute(/*@NotNull*/ Runnable command) {
+    Util.checkNotNullArgument(command);
+    if (command instanceof Entry) {
+      super.execute(command);
+    } else {
+      //a limited level keeps the boost from overflowing for large priorities
+      long level = Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, getLevel(command)));
+      super.execute(new Entry(command, level * agingStepNanos, sequence.getAndIncrement()));
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = super.shutdownNow();
+    List<Runnable> result = new ArrayList<Runnable>(pending.size());
+    for (Runnable r : pending) {
+      result.add(r instanceof Entry ? ((Entry) r).command : r);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} at which the given runnable has been
+   * submitted to this executor, or {@code -1} if it is not known.
+   *
+   * @param command the runnable as given to {@link #beforeExecute(Thread, Runnable)}
+   * @return the submit time in nanoseconds or {@code -1}
+   */
+  protected long getSubmitNanos(Runnable command) {
+    if (command instanceof Entry) {
+      return ((Entry) command).submitted;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the priority level of the given runnable. Higher levels are executed
+   * first.
+   *
+   * @param command
+   * @return the priority level
+   */
+  protected long getLevel(Runnable command) {
+    if (command instanceof TaskWorker) {
+      Task<?, ?> task = ((TaskWorker<?, ?>) command).getTask();
+      long level = getModeLevel(task.getMode());
+      if (task instanceof Prioritized) {
+        level += ((Prioritized) task).getPriority();
+      }
+      return level;
+    }
+    return getModeLevel(Mode.BACKGROUND);
+  }
+
+  protected long getModeLevel(Mode mode) {
+    if (mode == null) {
+      return 0;
+    }
+    switch (mode) {
+      case BLOCKING:
+        return 4;
+      case BACKGROUND:
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  private static final class Entry implements Runnable, Comparable<Entry> {
+    private final Runnable command;
+    private final long submitted = System.nanoTime();
+    private final long rank;
+    private final long seq;
+
+    private Entry(Runnable command, long boost, long seq) {
+      this.command = command;
+      this.rank = submitted - boost;
+      this.seq = seq;
+    }
+
+    @Override
+    public void run() {
+      command.run();
+    }
+
+    @Override
+    public int compareTo(Entry o) {
+      if (rank != o.rank) {
+        return rank < o.rank ? -1 : 1;
+      }
+      return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eknet.swing.task.TaskScope;
+
+/**
+ * A tracker for a weighted part of the work of its parent. See
+ * {@link org.eknet.swing.task.Tracker#split(int)}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:25
+ */
+class SubTracker<C> extends AbstractTracker<C> {
+
+  private final AbstractTracker<C> parent;
+  private final long weight;
+  private final AtomicLong progress = new AtomicLong(0);
+
+  SubTracker(/*@NotNull*/ AbstractTracker<C> parent, int weight) {
+    Util.checkNotNullArgument(parent);
+    this.parent = parent;
+    this.weight = weight;
+  }
+
+  @Override
+  public void setProgress(int progress) {
+    if (progress < 0 || progress > 100) {
+      throw new IllegalArgumentException("the value should be from 0 to 100");
+    }
+    setScaledProgress(progress * (SCALE / 100));
+  }
+
+  @Override
+  protected void setScaledProgress(long value) {
+    long old = progress.getAndSet(value);
+    if (old != value) {
+      parent.splitProgressed((value - old) * weight);
+    }
+  }
+
+  @Override
+  public void setPhase(/*@Nullable*/ String phase) {
+    parent.setPhase(phase);
+  }
+
+  @Override
+  public void publish(C... chunks) {
+    parent.publish(chunks);
+  }
+
+  @Override
+  Executor getScopeExecutor() {
+    return parent.getScopeExecutor();
+  }
+
+  @Override
+  void bindScope(/*@NotNull*/ TaskScope<?> scope) {
+    parent.bindScope(scope);
+  }
+}
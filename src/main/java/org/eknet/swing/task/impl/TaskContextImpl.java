@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.CircuitState;
+import org.eknet.swing.task.Delivery;
 import org.eknet.swing.task.Mode;
 import org.eknet.swing.task.State;
 import org.eknet.swing.task.Task;
@@ -39,7 +41,8 @@ import org.eknet.swing.task.TaskListener;
  * object and translates the {@link javax.swing.SwingWorker} events to {@link org.eknet.swing.task.TaskEvent}s.
  * <p/>
  * Each execution can be identified by a growing id. For retrieving task execution properties it delegates
- * to the wrapped {@link TaskWorker}.
+ * to the wrapped {@link TaskWorker}. If the task is retried, the context switches to the worker of the next
+ * attempt.
  *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 20.07.11 21:40
@@ -50,10 +53,10 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
 
   private final String contextId = String.valueOf(counter.getAndIncrement());
 
-  private final TaskWorker worker;
+  private volatile TaskWorker worker;
+  private volatile CircuitBreaker circuitBreaker;
   private final TaskListenerSupportImpl taskListenerSupport;
-  private final EventEmitter<TaskListener> localListeners = EventEmitter
-          .newEmitter(TaskListener.class, new LoggingExceptionHandler<TaskListener>(log));
+  private final TaskListenerEmitter localListeners = new TaskListenerEmitter(new LoggingExceptionHandler<TaskListener>(log));
 
   public TaskContextImpl(/*@NotNull*/ TaskWorker worker, /*@NotNull*/ TaskListenerSupportImpl taskListenerSupport) {
     Util.checkNotNullArgument(worker);
@@ -83,15 +86,32 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
   /*@NotNull*/
   @Override
   public State getState() {
+    TaskWorker<?, ?> worker = this.worker;
     if (worker.isCancelled()) {
-      return State.CANCELLED;
+      return worker.isTimedOut() ? State.TIMED_OUT : State.CANCELLED;
     }
-    return toState(worker.getState());
+    return toState(worker, worker.getState());
+  }
+
+  @Override
+  public int getAttempt() {
+    return worker.getAttempt();
+  }
+
+  /*@NotNull*/
+  @Override
+  public CircuitState getCircuitState() {
+    CircuitBreaker breaker = circuitBreaker;
+    return breaker != null ? breaker.getState(getTask().getId()) : CircuitState.CLOSED;
+  }
+
+  void setCircuitBreaker(/*@Nullable*/ CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
   }
 
   @Override
   public int getProgress() {
-    return worker.getProgress();
+    return worker.getLatestProgress();
   }
 
   @Override
@@ -111,15 +131,21 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
 
   @Override
   public void addListener(TaskListener listener) {
+    addListener(listener, Delivery.CALLER);
+  }
+
+  @Override
+  public void addListener(TaskListener listener, /*@NotNull*/ Delivery delivery) {
+    Util.checkNotNullArgument(delivery);
     if (listener != null) {
-      localListeners.addListener(listener);
+      localListeners.addListener(taskListenerSupport.wrap(listener, delivery, localListeners));
     }
   }
 
   @Override
   public void removeListener(TaskListener listener) {
     if (listener != null) {
-      localListeners.addListener(listener);
+      localListeners.removeListener(listener);
     }
   }
 
@@ -133,42 +159,72 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
     return worker.getTask();
   }
 
+  /**
+   * Tells whether any listener is interested in the given kinds of events of this
+   * context. Events that are not observed are neither created nor fired.
+   *
+   * @param kinds one or more of {@link TaskListenerEmitter#STATE}, {@link TaskListenerEmitter#PROGRESS}
+   * and {@link TaskListenerEmitter#PHASE}
+   * @return <code>true</code> if the events need to be fired
+   */
+  boolean isObserved(int kinds) {
+    return localListeners.hasInterest(kinds) || taskListenerSupport.isObserved(getTask().getId(), kinds);
+  }
+
   public void fireStateChangeEvent(/*@Nullable*/ State oldValue, /*@Nullable*/ State newValue) {
+    if (!isObserved(TaskListenerEmitter.STATE)) {
+      return;
+    }
     ChangeEvent<State> e = new ChangeEventImpl<State>(oldValue, newValue, this);
     taskListenerSupport.fireStateChanged(e);
-    localListeners.emitter().stateChanged(e);
+    localListeners.fireStateChanged(e);
   }
 
   public void fireProgressChangeEvent(/*@Nullable*/ Integer oldValue, /*@Nullable*/ Integer newValue) {
+    if (!isObserved(TaskListenerEmitter.PROGRESS)) {
+      return;
+    }
     ChangeEvent<Integer> e = new ChangeEventImpl<Integer>(oldValue, newValue, this);
     taskListenerSupport.fireProgressChanged(e);
-    localListeners.emitter().progressChanged(e);
+    localListeners.fireProgressChanged(e);
   }
 
   public void firePhaseChangeEvent(/*@Nullable*/ String oldValue, /*@Nullable*/ String newValue) {
+    if (!isObserved(TaskListenerEmitter.PHASE)) {
+      return;
+    }
     ChangeEvent<String> e = new ChangeEventImpl<String>(oldValue, newValue, this);
     taskListenerSupport.firePhaseChanged(e);
-    localListeners.emitter().phaseChanged(e);
+    localListeners.firePhaseChanged(e);
   }
   // ~~ PropertyChangeListener
 
   @Override
   public void propertyChange(PropertyChangeEvent evt) {
+    TaskWorker<?, ?> worker = (TaskWorker<?, ?>) evt.getSource();
+    if (evt.getPropertyName().equals("state") && evt.getNewValue() == SwingWorker.StateValue.DONE
+            && worker.getSuccessor() != null) {
+      retry(worker, worker.getSuccessor(), toState(worker, evt.getOldValue()));
+      return;
+    }
     if (getTask().getMode() == Mode.SILENT) {
       return;
     }
     if (evt.getPropertyName().equals("state")) {
       SwingWorker.StateValue nv = (SwingWorker.StateValue) evt.getNewValue();
+      State oldState = toState(worker, evt.getOldValue());
       if (nv == SwingWorker.StateValue.DONE) {
         if (worker.isError()) {
-          fireStateChangeEvent(toState(evt.getOldValue()), State.FAILED);
+          fireStateChangeEvent(oldState, State.FAILED);
+        } else if (worker.isTimedOut()) {
+          fireStateChangeEvent(oldState, State.TIMED_OUT);
         } else if (worker.isCancelled()) {
-          fireStateChangeEvent(toState(evt.getOldValue()), State.CANCELLED);
+          fireStateChangeEvent(oldState, State.CANCELLED);
         } else {
-          fireStateChangeEvent(toState(evt.getOldValue()), toState(evt.getNewValue()));
+          fireStateChangeEvent(oldState, State.DONE);
         }
       } else {
-        fireStateChangeEvent(toState(evt.getOldValue()), toState(evt.getNewValue()));
+        fireStateChangeEvent(oldState, toState(worker, evt.getNewValue()));
       }
     }
     if (evt.getPropertyName().equals("progress")) {
@@ -179,7 +235,24 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
     }
   }
 
-  private State toState(Object value) {
+  /**
+   * Switches this context to the worker of the next attempt.
+   */
+  private void retry(TaskWorker<?, ?> failed, TaskWorker<?, ?> next, State oldState) {
+    failed.removePropertyChangeListener(this);
+    this.worker = next;
+    next.setContext(this);
+    next.addPropertyChangeListener(this);
+    if (getTask().getMode() != Mode.SILENT) {
+      fireStateChangeEvent(oldState, State.RETRYING);
+    }
+    if (next.isDoneDelivered()) {
+      //the next attempt completed before the failed one has been done
+      propertyChange(next.newDoneEvent());
+    }
+  }
+
+  private State toState(TaskWorker<?, ?> worker, Object value) {
     if (value == State.CANCELLED) {
       return (State) value;
     }
@@ -187,7 +260,8 @@ public class TaskContextImpl implements TaskContext, PropertyChangeListener {
       case DONE:
         return State.DONE;
       case PENDING:
-        return State.PENDING;
+        //the worker of a retry is pending until its delay elapsed
+        return worker.getAttempt() > 1 ? State.RETRYING : State.PENDING;
       case STARTED:
         return State.STARTED;
     }
@@ -16,7 +16,18 @@
 
 package org.eknet.swing.task.impl;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.eknet.swing.task.State;
 import org.eknet.swing.task.TaskContext;
 import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskFuture;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -32,20 +44,102 @@ import org.eknet.swing.task.TaskControl;
 public class TaskControlImpl<V> implements TaskControl<V> {
   private final static Logger log = LoggerFactory.getLogger(TaskControlImpl.class);
   private final TaskContextImpl taskContext;
+  private final Executor executor;
+  private final AtomicBoolean executed = new AtomicBoolean(false);
+
+  private TaskFutureImpl<V> future; //guarded by this
 
   public TaskControlImpl(/*@NotNull*/ TaskContextImpl taskContext) {
+    this(taskContext, null);
+  }
+
+  /**
+   * Creates a new control for the given context.
+   * <p/>
+   * If {@code executor} is not {@code null}, the {@link TaskWorker} is dispatched on this
+   * executor. Otherwise {@link javax.swing.SwingWorker#execute()} is used, which runs the
+   * worker on the shared pool of the {@link javax.swing.SwingWorker} class.
+   *
+   * @param taskContext
+   * @param executor the executor to run the worker on, or {@code null}
+   */
+  public TaskControlImpl(/*@NotNull*/ TaskContextImpl taskContext, /*@Nullable*/ Executor executor) {
     Util.checkNotNullArgument(taskContext);
     this.taskContext = taskContext;
+    this.executor = executor;
   }
 
   @Override
   public V waitFor() {
-    TaskWorker<V, ?> worker = getWorker();
+    return getResult(awaitFinished(-1, TimeUnit.MILLISECONDS));
+  }
+
+  @Override
+  public V waitFor(long timeout, /*@NotNull*/ TimeUnit unit) throws TimeoutException {
+    Util.checkNotNullArgument(unit);
+    Future<V> finished = awaitFinished(timeout, unit);
+    if (finished == null) {
+      throw new TimeoutException("Timeout waiting for task " + taskContext.getContextId());
+    }
+    return getResult(finished);
+  }
+
+  /**
+   * Executes the task if it is pending and waits until it is finished. Off the EDT,
+   * this follows the successors of failed attempts until the last attempt is finished.
+   * On the EDT, events are pumped while waiting, because the future is completed on
+   * the EDT.
+   *
+   * @param timeout the time to wait, or a negative value to wait forever
+   * @param unit
+   * @return the finished future, or {@code null} if the timeout elapsed before
+   */
+  /*@Nullable*/
+  private Future<V> awaitFinished(long timeout, TimeUnit unit) {
     if (taskContext.getState() == State.PENDING) {
-      worker.execute();
+      execute();
+    }
+    try {
+      if (SwingUtilities.isEventDispatchThread()) {
+        TaskFuture<V> future = getFuture();
+        return Util.pumpEvents(future, timeout, unit) ? future : null;
+      }
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      TaskWorker<V, ?> worker = getWorker();
+      while (true) {
+        try {
+          if (timeout < 0) {
+            worker.get();
+          } else {
+            worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          }
+        } catch (TimeoutException e) {
+          return null;
+        } catch (ExecutionException e) {
+          //the attempt failed, it may have a successor
+        } catch (CancellationException e) {
+          //the attempt has been cancelled, it may have a successor
+        }
+        TaskWorker<V, ?> next = worker.getSuccessor();
+        if (next == null) {
+          return worker;
+        }
+        worker = next;
+      }
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted", e);
     }
+  }
+
+  private V getResult(Future<V> finished) {
     try {
-      return worker.get();
+      return finished.get();
+    } catch (CancellationException e) {
+      if (finished instanceof TaskWorker && ((TaskWorker<?, ?>) finished).isTimedOut()) {
+        ExecutionException cause = new ExecutionException(((TaskWorker<?, ?>) finished).newTimeoutException());
+        throw new RuntimeException("Error executing task!", cause);
+      }
+      throw e;
     } catch (InterruptedException e) {
       throw new RuntimeException("Interrupted", e);
     } catch (ExecutionException e) {
@@ -54,19 +148,88 @@ public class TaskControlImpl<V> implements TaskControl<V> {
   }
 
   @SuppressWarnings({"unchecked"})
-  private TaskWorker<V, ?> getWorker() {
+  TaskWorker<V, ?> getWorker() {
     return taskContext.getWorker();
   }
 
   @Override
   public void execute() {
-    getWorker().execute();
+    if (!executed.compareAndSet(false, true)) {
+      return;
+    }
+    TaskWorker<V, ?> worker = getWorker();
+    if (executor != null) {
+      executor.execute(worker);
+    } else {
+      worker.execute();
+    }
+  }
+
+  @Override
+  public void execute(long timeout, /*@NotNull*/ TimeUnit unit) {
+    Util.checkNotNullArgument(unit);
+    if (!executed.get()) {
+      getWorker().setTimeout(unit.toMillis(timeout));
+    }
+    execute();
   }
 
   @Override
   public void cancel() {
     log.info("About to cancel task: " + getContext().getContextId());
-    getWorker().cancel(true);
+    cancelWorker(true);
+  }
+
+  private boolean cancelWorker(boolean mayInterruptIfRunning) {
+    TaskWorker<V, ?> worker = getWorker();
+    boolean cancelled = worker.cancel(mayInterruptIfRunning);
+    //a retry may have been decided, but the context not yet switched
+    while ((worker = worker.getSuccessor()) != null) {
+      cancelled |= worker.cancel(mayInterruptIfRunning);
+    }
+    return cancelled;
+  }
+
+  /*@NotNull*/
+  @Override
+  public synchronized TaskFuture<V> getFuture() {
+    if (future == null) {
+      final TaskWorker<V, ?> worker = getWorker();
+      future = new TaskFutureImpl<V>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+          if (cancelWorker(mayInterruptIfRunning)) {
+            setFailure(new CancellationException());
+            return true;
+          }
+          return false;
+        }
+      };
+      worker.addCompletionListener(new PropertyChangeListener() {
+        @Override
+        @SuppressWarnings({"unchecked"})
+        public void propertyChange(PropertyChangeEvent evt) {
+          completeFuture((TaskWorker<V, ?>) evt.getSource(), future);
+        }
+      });
+    }
+    return future;
+  }
+
+  private static <V> void completeFuture(TaskWorker<V, ?> worker, TaskFutureImpl<V> future) {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      future.set(worker.get());
+    } catch (CancellationException e) {
+      future.setFailure(worker.isTimedOut() ? worker.newTimeoutException() : e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.setFailure(e);
+    } catch (ExecutionException e) {
+      future.setFailure(e.getCause() != null ? e.getCause() : e);
+    }
   }
 
   /*@NotNull*/
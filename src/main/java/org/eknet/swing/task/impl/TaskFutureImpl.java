@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.TaskCallback;
+import org.eknet.swing.task.TaskFunction;
+import org.eknet.swing.task.TaskFuture;
+
+/**
+ * A {@link TaskFuture} that is completed explicitly by calling {@link #set(Object)}
+ * or {@link #setFailure(Throwable)}. Only the first completion takes effect.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:20
+ */
+public class TaskFutureImpl<V> implements TaskFuture<V> {
+  private final static Logger log = LoggerFactory.getLogger(TaskFutureImpl.class);
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private final List<Runnable> callbacks = new ArrayList<Runnable>();
+
+  //guarded by callbacks
+  private boolean completed = false;
+  private V value;
+  private Throwable failure;
+
+  /**
+   * Completes this future with the given value.
+   *
+   * @param value
+   * @return {@code true} if this future has been completed by this call
+   */
+  public boolean set(/*@Nullable*/ V value) {
+    return complete(value, null);
+  }
+
+  /**
+   * Completes this future with the given failure. A {@link CancellationException}
+   * marks this future as cancelled.
+   *
+   * @param cause
+   * @return {@code true} if this future has been completed by this call
+   */
+  public boolean setFailure(/*@NotNull*/ Throwable cause) {
+    Util.checkNotNullArgument(cause);
+    return complete(null, cause);
+  }
+
+  private boolean complete(V value, Throwable cause) {
+    List<Runnable> toRun;
+    synchronized (callbacks) {
+      if (completed) {
+        return false;
+      }
+      this.completed = true;
+      this.value = value;
+      this.failure = cause;
+      toRun = new ArrayList<Runnable>(callbacks);
+      callbacks.clear();
+    }
+    latch.countDown();
+    for (Runnable r : toRun) {
+      r.run();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return setFailure(new CancellationException());
+  }
+
+  @Override
+  public boolean isCancelled() {
+    synchronized (callbacks) {
+      return failure instanceof CancellationException;
+    }
+  }
+
+  @Override
+  public boolean isDone() {
+    synchronized (callbacks) {
+      return completed;
+    }
+  }
+
+  @Override
+  public V get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return getValue();
+  }
+
+  @Override
+  public V get(long timeout, /*@NotNull*/ TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getValue();
+  }
+
+  private V getValue() throws ExecutionException {
+    synchronized (callbacks) {
+      if (failure instanceof CancellationException) {
+        throw (CancellationException) failure;
+      }
+      if (failure != null) {
+        throw new ExecutionException(failure);
+      }
+      return value;
+    }
+  }
+
+  @Override
+  public void addCallback(/*@NotNull*/ TaskCallback<? super V> callback) {
+    addCallback(callback, EdtExecutor.INSTANCE);
+  }
+
+  @Override
+  public void addCallback(/*@NotNull*/ final TaskCallback<? super V> callback, /*@NotNull*/ final Executor executor) {
+    Util.checkNotNullArgument(callback);
+    Util.checkNotNullArgument(executor);
+    Runnable dispatch = new Runnable() {
+      @Override
+      public void run() {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            invokeCallback(callback);
+          }
+        });
+      }
+    };
+    synchronized (callbacks) {
+      if (!completed) {
+        callbacks.add(dispatch);
+        return;
+      }
+    }
+    dispatch.run();
+  }
+
+  private void invokeCallback(TaskCallback<? super V> callback) {
+    V v;
+    Throwable t;
+    synchronized (callbacks) {
+      v = value;
+      t = failure;
+    }
+    try {
+      if (t != null) {
+        callback.failed(t);
+      } else {
+        callback.done(v);
+      }
+    } catch (RuntimeException e) {
+      log.error("Callback '" + callback + "' threw an exception: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public <R> TaskFuture<R> then(/*@NotNull*/ final TaskFunction<? super V, ? extends R> function, /*@NotNull*/ Executor executor) {
+    Util.checkNotNullArgument(function);
+    final TaskFutureImpl<R> result = new TaskFutureImpl<R>();
+    addCallback(new TaskCallback<V>() {
+      @Override
+      public void done(V value) {
+        try {
+          result.set(function.apply(value));
+        } catch (Throwable e) {
+          result.setFailure(e);
+        }
+      }
+
+      @Override
+      public void failed(Throwable cause) {
+        result.setFailure(cause);
+      }
+    }, executor);
+    return result;
+  }
+
+  @Override
+  public <R> TaskFuture<R> thenCompose(/*@NotNull*/ final TaskFunction<? super V, ? extends TaskFuture<R>> function, /*@NotNull*/ Executor executor) {
+    Util.checkNotNullArgument(function);
+    final TaskFutureImpl<R> result = new TaskFutureImpl<R>();
+    addCallback(new TaskCallback<V>() {
+      @Override
+      public void done(V value) {
+        try {
+          TaskFuture<R> next = function.apply(value);
+          Util.checkNotNullState(next, "function returned null");
+          next.addCallback(new TaskCallback<R>() {
+            @Override
+            public void done(R value) {
+              result.set(value);
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+              result.setFailure(cause);
+            }
+          }, Util.DIRECT_EXECUTOR);
+        } catch (Throwable e) {
+          result.setFailure(e);
+        }
+      }
+
+      @Override
+      public void failed(Throwable cause) {
+        result.setFailure(cause);
+      }
+    }, executor);
+    return result;
+  }
+}
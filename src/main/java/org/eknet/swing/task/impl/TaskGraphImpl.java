@@ -0,0 +1,359 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskCallback;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskFuture;
+import org.eknet.swing.task.TaskGraph;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.TaskManager;
+
+/**
+ * Executes a graph of tasks using {@link TaskManager#create(Task)}.
+ * <p/>
+ * Each node counts its predecessors that are not yet completed. When a task
+ * completes, the counters of its successors are decremented and nodes reaching
+ * zero are executed. Completion is noticed through the {@link TaskFuture} of
+ * each task, so no thread waits for another task.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:45
+ */
+public class TaskGraphImpl implements TaskGraph {
+  private final static Logger log = LoggerFactory.getLogger(TaskGraphImpl.class);
+
+  private final TaskManager taskManager;
+
+  private final List<NodeImpl<?>> nodes = new ArrayList<NodeImpl<?>>(); //guarded by this
+  private boolean executed = false; //guarded by this
+  private int remaining; //guarded by this
+  private Throwable failure; //guarded by this
+
+  private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<ProgressListener>();
+  private volatile int progress = 0;
+
+  private final TaskFutureImpl<Void> future = new TaskFutureImpl<Void>() {
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      TaskGraphImpl.this.cancel();
+      return isCancelled();
+    }
+  };
+
+  public TaskGraphImpl(/*@NotNull*/ TaskManager taskManager) {
+    Util.checkNotNullArgument(taskManager);
+    this.taskManager = taskManager;
+  }
+
+  /*@NotNull*/
+  @Override
+  public synchronized <V, C> Node<V> add(/*@NotNull*/ Task<V, C> task, Node<?>... predecessors) {
+    Util.checkNotNullArgument(task);
+    if (executed) {
+      throw new IllegalStateException("The graph has already been executed");
+    }
+    Set<NodeImpl<?>> preds = new LinkedHashSet<NodeImpl<?>>();
+    for (Node<?> p : predecessors) {
+      if (!(p instanceof NodeImpl) || ((NodeImpl<?>) p).graph != this) {
+        throw new IllegalArgumentException("The node " + p + " does not belong to this graph");
+      }
+      preds.add((NodeImpl<?>) p);
+    }
+    NodeImpl<V> node = new NodeImpl<V>(this, task, new ArrayList<Node<?>>(preds));
+    for (NodeImpl<?> p : preds) {
+      p.successors.add(node);
+    }
+    nodes.add(node);
+    return node;
+  }
+
+  @Override
+  public void execute() {
+    List<NodeImpl<?>> roots = new ArrayList<NodeImpl<?>>();
+    synchronized (this) {
+      if (executed) {
+        return;
+      }
+      executed = true;
+      remaining = nodes.size();
+      try {
+        for (NodeImpl<?> node : nodes) {
+          node.create(taskManager);
+          if (node.pending == 0) {
+            roots.add(node);
+          }
+        }
+      } catch (RuntimeException e) {
+        log.error("Unable to create the tasks of the graph", e);
+        for (NodeImpl<?> node : nodes) {
+          if (node.control != null) {
+            node.control.cancel();
+          }
+        }
+        future.setFailure(e);
+        return;
+      }
+    }
+    if (roots.isEmpty()) {
+      future.set(null);
+      return;
+    }
+    for (NodeImpl<?> node : getNodesInternal()) {
+      node.watch();
+    }
+    for (NodeImpl<?> node : roots) {
+      node.control.execute();
+    }
+  }
+
+  private synchronized List<NodeImpl<?>> getNodesInternal() {
+    return new ArrayList<NodeImpl<?>>(nodes);
+  }
+
+  private void completed(NodeImpl<?> node, /*@Nullable*/ Throwable cause) {
+    List<NodeImpl<?>> ready = new ArrayList<NodeImpl<?>>();
+    List<NodeImpl<?>> dependents = new ArrayList<NodeImpl<?>>();
+    boolean finished;
+    synchronized (this) {
+      node.finished = true;
+      remaining--;
+      if (cause == null) {
+        for (NodeImpl<?> s : node.successors) {
+          if (--s.pending == 0 && !s.skipped) {
+            ready.add(s);
+          }
+        }
+      } else {
+        if (failure == null) {
+          failure = cause;
+        }
+        collectDependents(node, dependents);
+      }
+      finished = remaining == 0;
+    }
+    for (NodeImpl<?> s : dependents) {
+      s.control.cancel();
+    }
+    for (NodeImpl<?> s : ready) {
+      s.control.execute();
+    }
+    updateProgress();
+    if (finished) {
+      Throwable t;
+      synchronized (this) {
+        t = failure;
+      }
+      if (t != null) {
+        future.setFailure(t);
+      } else {
+        future.set(null);
+      }
+    }
+  }
+
+  private void collectDependents(NodeImpl<?> node, List<NodeImpl<?>> result) {
+    for (NodeImpl<?> s : node.successors) {
+      if (!s.skipped && !s.finished) {
+        s.skipped = true;
+        result.add(s);
+        collectDependents(s, result);
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    List<NodeImpl<?>> toCancel = new ArrayList<NodeImpl<?>>();
+    synchronized (this) {
+      if (!executed) {
+        executed = true;
+        future.setFailure(new CancellationException());
+        return;
+      }
+      for (NodeImpl<?> node : nodes) {
+        if (!node.finished && node.control != null) {
+          node.skipped = true;
+          toCancel.add(node);
+        }
+      }
+    }
+    for (NodeImpl<?> node : toCancel) {
+      node.control.cancel();
+    }
+  }
+
+  /*@NotNull*/
+  @Override
+  public TaskFuture<Void> getFuture() {
+    return future;
+  }
+
+  @Override
+  public int getProgress() {
+    return progress;
+  }
+
+  private void updateProgress() {
+    final int oldValue;
+    final int newValue;
+    synchronized (this) {
+      if (nodes.isEmpty()) {
+        return;
+      }
+      long sum = 0;
+      for (NodeImpl<?> node : nodes) {
+        sum += node.finished ? 100 : node.progress;
+      }
+      oldValue = progress;
+      newValue = (int) (sum / nodes.size());
+      progress = newValue;
+    }
+    if (oldValue != newValue && !progressListeners.isEmpty()) {
+      EdtExecutor.INSTANCE.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (ProgressListener listener : progressListeners) {
+            try {
+              listener.progressChanged(TaskGraphImpl.this, oldValue, newValue);
+            } catch (RuntimeException e) {
+              log.error("Progress listener '" + listener + "' threw an exception", e);
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /*@NotNull*/
+  @Override
+  public synchronized List<Node<?>> getNodes() {
+    return Collections.<Node<?>>unmodifiableList(new ArrayList<NodeImpl<?>>(nodes));
+  }
+
+  @Override
+  public void addProgressListener(/*@NotNull*/ ProgressListener listener) {
+    Util.checkNotNullArgument(listener);
+    progressListeners.add(listener);
+  }
+
+  @Override
+  public void removeProgressListener(/*@NotNull*/ ProgressListener listener) {
+    Util.checkNotNullArgument(listener);
+    progressListeners.remove(listener);
+  }
+
+  private static final class NodeImpl<V> implements Node<V> {
+    private final TaskGraphImpl graph;
+    private final Task<V, ?> task;
+    private final List<Node<?>> predecessors;
+    private final List<NodeImpl<?>> successors = new ArrayList<NodeImpl<?>>();
+
+    //guarded by graph
+    private int pending;
+    private boolean finished = false;
+    private boolean skipped = false;
+
+    private volatile TaskControl<V> control;
+    private volatile int progress = 0;
+    private volatile boolean succeeded = false;
+    private volatile V result;
+
+    private NodeImpl(TaskGraphImpl graph, Task<V, ?> task, List<Node<?>> predecessors) {
+      this.graph = graph;
+      this.task = task;
+      this.predecessors = Collections.unmodifiableList(predecessors);
+      this.pending = predecessors.size();
+    }
+
+    private void create(TaskManager taskManager) {
+      control = taskManager.create(task);
+    }
+
+    private void watch() {
+      control.getContext().addListener(new TaskListenerAdapter() {
+        @Override
+        public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+          Integer value = event.getNewValue();
+          if (value != null) {
+            progress = value;
+            graph.updateProgress();
+          }
+        }
+      });
+      control.getFuture().addCallback(new TaskCallback<V>() {
+        @Override
+        public void done(V value) {
+          result = value;
+          succeeded = true;
+          graph.completed(NodeImpl.this, null);
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+          graph.completed(NodeImpl.this, cause);
+        }
+      }, Util.DIRECT_EXECUTOR);
+    }
+
+    /*@NotNull*/
+    @Override
+    public Task<V, ?> getTask() {
+      return task;
+    }
+
+    /*@NotNull*/
+    @Override
+    public List<Node<?>> getPredecessors() {
+      return predecessors;
+    }
+
+    @Override
+    public TaskControl<V> getControl() {
+      return control;
+    }
+
+    @Override
+    public V getResult() {
+      if (!succeeded) {
+        throw new IllegalStateException("The task '" + task.getId() + "' has not completed successfully");
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "Node{" +
+              "task=" + task.getId() +
+              ", predecessors=" + predecessors.size() +
+              '}';
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.ExceptionHandler;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskListener;
+import org.eknet.swing.task.TaskListenerAdapter;
+
+/**
+ * An {@link EventEmitter} for {@link TaskListener}s that calls the listener methods
+ * directly instead of going through a proxy.
+ * <p/>
+ * It also knows which kinds of events its listeners are interested in, so that events
+ * nobody listens to need not be created. A {@link TaskListenerAdapter} is only
+ * interested in the events of the methods it overrides, any other listener is
+ * interested in all events.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 10:12
+ */
+public class TaskListenerEmitter extends EventEmitter<TaskListener> {
+
+  public static final int STATE = 1;
+  public static final int PROGRESS = 2;
+  public static final int PHASE = 4;
+  public static final int ALL = STATE | PROGRESS | PHASE;
+
+  private static final Notifier<TaskListener, ChangeEvent<State>> STATE_CHANGED = new Notifier<TaskListener, ChangeEvent<State>>() {
+    @Override
+    public void notify(TaskListener listener, ChangeEvent<State> event) {
+      listener.stateChanged(event);
+    }
+  };
+
+  private static final Notifier<TaskListener, ChangeEvent<Integer>> PROGRESS_CHANGED = new Notifier<TaskListener, ChangeEvent<Integer>>() {
+    @Override
+    public void notify(TaskListener listener, ChangeEvent<Integer> event) {
+      listener.progressChanged(event);
+    }
+  };
+
+  private static final Notifier<TaskListener, ChangeEvent<String>> PHASE_CHANGED = new Notifier<TaskListener, ChangeEvent<String>>() {
+    @Override
+    public void notify(TaskListener listener, ChangeEvent<String> event) {
+      listener.phaseChanged(event);
+    }
+  };
+
+  private volatile int interest = 0;
+
+  public TaskListenerEmitter(ExceptionHandler<TaskListener> handler) {
+    super(TaskListener.class, TaskListener.class.getClassLoader(), handler);
+  }
+
+  @Override
+  public synchronized void addListener(TaskListener listener) {
+    super.addListener(listener);
+    updateInterest();
+  }
+
+  @Override
+  public synchronized void removeListener(TaskListener listener) {
+    super.removeListener(listener);
+    updateInterest();
+  }
+
+  private void updateInterest() {
+    int mask = 0;
+    for (TaskListener listener : this) {
+      mask |= interestOf(listener);
+    }
+    interest = mask;
+  }
+
+  /**
+   * Tells whether a listener is interested in the given kinds of events.
+   *
+   * @param kinds one or more of {@link #STATE}, {@link #PROGRESS} and {@link #PHASE}
+   * @return <code>true</code> if there is a listener for any of the given kinds
+   */
+  public boolean hasInterest(int kinds) {
+    return (interest & kinds) != 0;
+  }
+
+  static int interestOf(TaskListener listener) {
+    if (listener instanceof DeliveringListener) {
+      return interestOf(((DeliveringListener) listener).getDelegate());
+    }
+    if (!(listener instanceof TaskListenerAdapter)) {
+      return ALL;
+    }
+    Class<?> type = listener.getClass();
+    int mask = 0;
+    if (overrides(type, "stateChanged")) {
+      mask |= STATE;
+    }
+    if (overrides(type, "progressChanged")) {
+      mask |= PROGRESS;
+    }
+    if (overrides(type, "phaseChanged")) {
+      mask |= PHASE;
+    }
+    return mask;
+  }
+
+  private static boolean overrides(Class<?> type, String method) {
+    try {
+      return type.getMethod(method, ChangeEvent.class).getDeclaringClass() != TaskListenerAdapter.class;
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
+  public void fireStateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+    fire(STATE_CHANGED, event);
+  }
+
+  public void fireProgressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+    fire(PROGRESS_CHANGED, event);
+  }
+
+  public void firePhaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
+    fire(PHASE_CHANGED, event);
+  }
+}
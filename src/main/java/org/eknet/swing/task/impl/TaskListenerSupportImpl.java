@@ -16,15 +16,17 @@
 
 package org.eknet.swing.task.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.Delivery;
 import org.eknet.swing.task.State;
 import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskBatchListener;
 import org.eknet.swing.task.TaskListener;
 import org.eknet.swing.task.TaskListenerSupport;
 
@@ -36,13 +38,24 @@ public class TaskListenerSupportImpl implements TaskListenerSupport {
   private final static Logger log = LoggerFactory.getLogger(TaskListenerSupportImpl.class);
 
   private final LoggingExceptionHandler<TaskListener> loggingExceptionHandler = new LoggingExceptionHandler<TaskListener>(log);
-  private final Map<String, EventEmitter<TaskListener>> taskListeners = new HashMap<String, EventEmitter<TaskListener>>();
-  private final EventEmitter<TaskListener> globalListeners = EventEmitter.newEmitter(TaskListener.class, loggingExceptionHandler);
+  /**
+   * Emitters of listeners per task id. An emitter only exists while it has listeners. Adding
+   * and removing listeners locks the emitter, firing events does not lock at all.
+   */
+  private final ConcurrentMap<String, TaskListenerEmitter> taskListeners = new ConcurrentHashMap<String, TaskListenerEmitter>();
+  private final TaskListenerEmitter globalListeners = new TaskListenerEmitter(loggingExceptionHandler);
+  private volatile AsyncListenerDispatcher dispatcher;
 
   @Override
   public void addListener(TaskListener listener) {
+    addListener(listener, Delivery.CALLER);
+  }
+
+  @Override
+  public void addListener(TaskListener listener, /*@NotNull*/ Delivery delivery) {
+    Util.checkNotNullArgument(delivery);
     if (listener != null) {
-      globalListeners.addListener(listener);
+      globalListeners.addListener(wrap(listener, delivery, globalListeners));
     }
   }
 
@@ -55,59 +68,164 @@ public class TaskListenerSupportImpl implements TaskListenerSupport {
 
   @Override
   public void addListener(/*@NotNull*/ String taskId, TaskListener listener) {
+    addListener(taskId, listener, Delivery.CALLER);
+  }
+
+  @Override
+  public void addListener(/*@NotNull*/ String taskId, TaskListener listener, /*@NotNull*/ Delivery delivery) {
     Util.checkNotNullArgument(taskId);
+    Util.checkNotNullArgument(delivery);
     if (listener != null) {
-      EventEmitter<TaskListener> emitter = getTaskListener(taskId);
-      emitter.addListener(listener);
+      while (true) {
+        TaskListenerEmitter emitter = taskListeners.get(taskId);
+        if (emitter == null) {
+          TaskListenerEmitter created = new TaskListenerEmitter(loggingExceptionHandler);
+          emitter = taskListeners.putIfAbsent(taskId, created);
+          if (emitter == null) {
+            emitter = created;
+          }
+        }
+        synchronized (emitter) {
+          //the emitter may have been removed after its last listener has gone
+          if (taskListeners.get(taskId) == emitter) {
+            emitter.addListener(wrap(listener, delivery, emitter));
+            return;
+          }
+        }
+      }
     }
   }
 
-  public EventEmitter<TaskListener> getTaskListener(String taskId) {
-    EventEmitter<TaskListener> emitter;
-    synchronized (taskListeners) {
-      emitter = taskListeners.get(taskId);
+  TaskListener wrap(TaskListener listener, Delivery delivery, EventEmitter<TaskListener> emitter) {
+    if (delivery == Delivery.ASYNC) {
+      return DeliveringListener.wrap(listener, delivery, getDispatcher(), emitter);
     }
-    if (emitter == null) {
-      emitter = EventEmitter.newEmitter(TaskListener.class, loggingExceptionHandler);
-      synchronized (taskListeners) {
-        taskListeners.put(taskId, emitter);
+    return DeliveringListener.wrap(listener, delivery, null, emitter);
+  }
+
+  /**
+   * Returns the dispatcher that notifies listeners registered with
+   * {@link Delivery#ASYNC}. It is created on first use.
+   *
+   * @return the dispatcher
+   */
+  /*@NotNull*/
+  public AsyncListenerDispatcher getDispatcher() {
+    AsyncListenerDispatcher d = dispatcher;
+    if (d == null) {
+      synchronized (this) {
+        d = dispatcher;
+        if (d == null) {
+          d = new AsyncListenerDispatcher();
+          dispatcher = d;
+        }
       }
     }
-    return emitter;
+    return d;
+  }
+
+  /**
+   * Sets the dispatcher used for listeners registered with {@link Delivery#ASYNC}
+   * afterwards. Listeners that are already registered keep their dispatcher.
+   *
+   * @param dispatcher
+   */
+  public void setDispatcher(/*@NotNull*/ AsyncListenerDispatcher dispatcher) {
+    Util.checkNotNullArgument(dispatcher);
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Returns the emitter of the listeners for the given task id.
+   *
+   * @param taskId
+   * @return the emitter or <code>null</code>, if there are no listeners for this id
+   */
+  /*@Nullable*/
+  public TaskListenerEmitter getTaskListener(/*@NotNull*/ String taskId) {
+    Util.checkNotNullArgument(taskId);
+    return taskListeners.get(taskId);
   }
 
   @Override
   public void removeListener(/*@NotNull*/ String taskId, TaskListener listener) {
     Util.checkNotNullArgument(taskId);
     if (listener != null) {
-      EventEmitter<TaskListener> emitter = getTaskListener(taskId);
-      emitter.removeListener(listener);
+      TaskListenerEmitter emitter = taskListeners.get(taskId);
+      if (emitter != null) {
+        synchronized (emitter) {
+          emitter.removeListener(listener);
+          if (emitter.isEmpty()) {
+            taskListeners.remove(taskId, emitter);
+          }
+        }
+      }
     }
   }
 
-  public EventEmitter<TaskListener> getGlobalListeners() {
+  @Override
+  public void addBatchListener(TaskBatchListener listener) {
+    if (listener != null) {
+      globalListeners.addListener(new BatchingListener(listener, loggingExceptionHandler));
+    }
+  }
+
+  @Override
+  public void removeBatchListener(TaskBatchListener listener) {
+    if (listener != null) {
+      globalListeners.removeListener(new BatchingListener(listener, loggingExceptionHandler));
+    }
+  }
+
+  public TaskListenerEmitter getGlobalListeners() {
     return globalListeners;
   }
 
 
+  /**
+   * Tells whether a global listener or a listener for the given task id is
+   * interested in the given kinds of events.
+   *
+   * @param taskId
+   * @param kinds one or more of {@link TaskListenerEmitter#STATE}, {@link TaskListenerEmitter#PROGRESS}
+   * and {@link TaskListenerEmitter#PHASE}
+   * @return <code>true</code> if the events need to be fired
+   */
+  public boolean isObserved(/*@NotNull*/ String taskId, int kinds) {
+    if (globalListeners.hasInterest(kinds)) {
+      return true;
+    }
+    TaskListenerEmitter emitter = taskListeners.get(taskId);
+    return emitter != null && emitter.hasInterest(kinds);
+  }
+
   public void fireStateChanged(/*@NotNull*/ ChangeEvent<State> event) {
     Util.checkNotNullArgument(event);
     Task task = event.getSource().getTask();
-    getTaskListener(task.getId()).emitter().stateChanged(event);
-    globalListeners.emitter().stateChanged(event);
+    TaskListenerEmitter emitter = taskListeners.get(task.getId());
+    if (emitter != null) {
+      emitter.fireStateChanged(event);
+    }
+    globalListeners.fireStateChanged(event);
   }
 
   public void fireProgressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
     Util.checkNotNullArgument(event);
     Task task = event.getSource().getTask();
-    getTaskListener(task.getId()).emitter().progressChanged(event);
-    globalListeners.emitter().progressChanged(event);
+    TaskListenerEmitter emitter = taskListeners.get(task.getId());
+    if (emitter != null) {
+      emitter.fireProgressChanged(event);
+    }
+    globalListeners.fireProgressChanged(event);
   }
 
   public void firePhaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
     Util.checkNotNullArgument(event);
     Task task = event.getSource().getTask();
-    getTaskListener(task.getId()).emitter().phaseChanged(event);
-    globalListeners.emitter().phaseChanged(event);
+    TaskListenerEmitter emitter = taskListeners.get(task.getId());
+    if (emitter != null) {
+      emitter.firePhaseChanged(event);
+    }
+    globalListeners.firePhaseChanged(event);
   }
 }
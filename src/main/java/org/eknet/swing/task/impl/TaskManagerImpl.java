@@ -16,26 +16,52 @@
 
 package org.eknet.swing.task.impl;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.eknet.swing.task.Cacheable;
+import org.eknet.swing.task.Categorized;
 import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.CircuitOpenException;
+import org.eknet.swing.task.CircuitState;
 import org.eknet.swing.task.Mode;
+import org.eknet.swing.task.ResultCache;
+import org.eknet.swing.task.RetryPolicy;
+import org.eknet.swing.task.ScheduledTask;
+import org.eknet.swing.task.Serial;
 import org.eknet.swing.task.State;
 import org.eknet.swing.task.Task;
 import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskEventHistory;
+import org.eknet.swing.task.TaskGraph;
 import org.eknet.swing.task.TaskListenerAdapter;
 import org.eknet.swing.task.TaskListenerSupport;
 import org.eknet.swing.task.TaskManager;
@@ -49,15 +75,124 @@ public class TaskManagerImpl implements TaskManager {
 
   private final static Logger log = LoggerFactory.getLogger(TaskManagerImpl.class);
 
+  /**
+   * The default maximum number of progress and phase updates per second and task.
+   */
+  public static final int DEFAULT_MAX_UPDATE_RATE = 30;
+
   private final TaskListenerSupportImpl taskListenerSupport = new TaskListenerSupportImpl();
+  private final EventHistory eventHistory = new EventHistory(taskListenerSupport);
   private final Map<String, TaskControl> tasks = new ConcurrentHashMap<String, TaskControl>();
+  private final ConcurrentMap<String, TaskControlImpl<?>> inFlight = new ConcurrentHashMap<String, TaskControlImpl<?>>();
 
   private final Blocker blocker = new Blocker();
 
   private final ExecutorService executorService;
+  private final boolean executeTasks;
+  private final ScheduledExecutorService scheduler = createScheduler();
+
+  private final Object lifecycleLock = new Object();
+  private final Set<TaskWorker<?, ?>> activeWorkers = new HashSet<TaskWorker<?, ?>>(); //guarded by lifecycleLock
+  private final Set<TaskWorker<?, ?>> delayedWorkers = new HashSet<TaskWorker<?, ?>>(); //guarded by lifecycleLock
+  private final Set<PeriodicTask<?, ?>> periodicTasks = new HashSet<PeriodicTask<?, ?>>(); //guarded by lifecycleLock
+  private boolean shutdown = false; //guarded by lifecycleLock
+
+  private final Executor taskDispatcher = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      dispatch((TaskWorker<?, ?>) command);
+    }
+  };
+
+  /**
+   * Runs the workers of cached results. They complete immediately on the calling
+   * thread and do not wait for lanes or limits, but are tracked like other workers.
+   */
+  private final Executor cachedRunner = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      TaskWorker<?, ?> worker = (TaskWorker<?, ?>) command;
+      synchronized (lifecycleLock) {
+        if (shutdown) {
+          log.debug("Task manager is shut down. Cancelling task '{}'", worker.getTask().getId());
+          worker.cancel(true);
+          return;
+        }
+        track(worker);
+      }
+      worker.run();
+    }
+  };
+
+  private final Executor workerRunner = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      TaskWorker<?, ?> worker = (TaskWorker<?, ?>) command;
+      try {
+        if (executeTasks) {
+          executorService.execute(worker);
+        } else {
+          worker.execute();
+        }
+      } catch (RejectedExecutionException e) {
+        log.warn("Task '" + worker.getTask().getId() + "' has been rejected", e);
+        worker.cancel(true);
+      }
+    }
+  };
+
+  private final Map<String, Integer> concurrencyLimits = new ConcurrentHashMap<String, Integer>();
+  private final ConcurrencyLimiter bulkheads = new ConcurrencyLimiter(workerRunner);
+
+  private final Executor limitedRunner = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      TaskWorker<?, ?> worker = (TaskWorker<?, ?>) command;
+      String key = getLimitKey(worker.getTask());
+      Integer limit = concurrencyLimits.get(key);
+      if (limit != null) {
+        bulkheads.execute(key, limit, worker);
+      } else {
+        workerRunner.execute(worker);
+      }
+    }
+  };
+
+  private final ConcurrencyLimiter lanes = new ConcurrencyLimiter(limitedRunner);
+  private final Debouncer debouncer = new Debouncer(this, scheduler);
 
   private AtomicInteger blockingCounter = new AtomicInteger(0);
 
+  private volatile boolean singleFlight = false;
+  private volatile ResultCache resultCache;
+  private volatile RetryPolicy retryPolicy;
+  private volatile int maxUpdateRate = DEFAULT_MAX_UPDATE_RATE;
+  private volatile CircuitBreaker circuitBreaker;
+
+  private final AttemptHandler attemptHandler = new AttemptHandler() {
+    @Override
+    public void succeeded(/*@NotNull*/ TaskWorker<?, ?> worker) {
+      CircuitBreaker breaker = circuitBreaker;
+      if (breaker != null) {
+        breaker.recordSuccess(worker);
+      }
+    }
+
+    @Override
+    public <V, C> TaskWorker<V, C> failed(/*@NotNull*/ TaskWorker<V, C> worker, /*@NotNull*/ Exception cause) {
+      CircuitBreaker breaker = circuitBreaker;
+      if (breaker != null && breaker.recordFailure(worker) == CircuitState.OPEN) {
+        log.debug("Circuit for task '{}' is open", worker.getTask().getId());
+        return null;
+      }
+      RetryPolicy policy = retryPolicy;
+      if (policy == null || !policy.isRetryable(worker.getTask(), worker.getAttempt(), cause)) {
+        return null;
+      }
+      return scheduleRetry(worker, policy.getDelay(worker.getAttempt()));
+    }
+  };
+
   private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
     private final ThreadFactory defaultTf = Executors.defaultThreadFactory();
 
@@ -71,15 +206,78 @@ public class TaskManagerImpl implements TaskManager {
   };
 
   private static ExecutorService createExecutorService() {
-    return new ThreadPoolExecutor(2, 10,
-            20L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<Runnable>(), THREAD_FACTORY);
+    int max = Math.max(10, Runtime.getRuntime().availableProcessors() * 4);
+    return new AdaptiveTaskExecutor(2, max, THREAD_FACTORY);
+  }
+
+  /**
+   * Creates the scheduler of this manager. It is a single thread that is used for
+   * all timed operations, like timeouts of tasks. It is not meant to run any
+   * other work.
+   *
+   * @return a new scheduler
+   */
+  private static ScheduledExecutorService createScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
+    scheduler.setRemoveOnCancelPolicy(true);
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    return scheduler;
+  }
+
+  /**
+   * Creates an {@link ExecutorService} that starts a new thread for each submitted task.
+   * <p/>
+   * If the java runtime supports virtual threads, each task is run on its own virtual
+   * thread. Otherwise an unbounded pool of (cached) daemon threads is used. This is
+   * meant for managers running many tasks that are mostly waiting on I/O. Cancelling
+   * a task interrupts its thread in both cases.
+   *
+   * @return a new thread-per-task executor service
+   */
+  public static ExecutorService createThreadPerTaskExecutorService() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = ofVirtual.invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "SwingTask-virtual-", 0L);
+      ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newExecutor.invoke(null, factory);
+    } catch (NoSuchMethodException e) {
+      log.debug("Virtual threads are not available. Using a cached thread pool.");
+    } catch (Exception e) {
+      log.warn("Unable to create virtual thread executor. Using a cached thread pool.", e);
+    }
+    return Executors.newCachedThreadPool(THREAD_FACTORY);
+  }
+
+  /**
+   * Creates a task manager that runs each task on its own thread, using
+   * virtual threads if available.
+   *
+   * @return a new task manager
+   * @see #createThreadPerTaskExecutorService()
+   */
+  public static TaskManagerImpl createThreadPerTaskManager() {
+    return new TaskManagerImpl(createThreadPerTaskExecutorService(), true);
   }
 
   public TaskManagerImpl() {
     this(createExecutorService());
   }
 
+  /**
+   * Creates a new task manager using the default executor service. Pending work on
+   * this executor is ordered by priority and the number of threads adapts to the
+   * load, see {@link AdaptiveTaskExecutor}.
+   *
+   * @param executeTasks whether to run tasks on the manager's executor service
+   * @see #TaskManagerImpl(ExecutorService, boolean)
+   */
+  public TaskManagerImpl(boolean executeTasks) {
+    this(createExecutorService(), executeTasks);
+  }
+
   /**
    * Creates a new task manager.
    * <p/>
@@ -90,8 +288,25 @@ public class TaskManagerImpl implements TaskManager {
    * @param executorService
    */
   public TaskManagerImpl(/*NotNull*/ ExecutorService executorService) {
+    this(executorService, false);
+  }
+
+  /**
+   * Creates a new task manager.
+   * <p/>
+   * If {@code executeTasks} is {@code true}, the {@link TaskWorker}s of all created
+   * {@link Task}s are dispatched on the given {@code executorService}, too. Thus its pool
+   * size, queue and thread factory apply to tasks as well. Otherwise tasks are run on the
+   * shared pool of the {@link javax.swing.SwingWorker} class and {@code executorService}
+   * is only used for {@link Runnable}s and {@link Callable}s.
+   *
+   * @param executorService
+   * @param executeTasks whether to run tasks on {@code executorService}
+   */
+  public TaskManagerImpl(/*NotNull*/ ExecutorService executorService, boolean executeTasks) {
     Util.checkNotNullArgument(executorService);
     this.executorService = executorService;
+    this.executeTasks = executeTasks;
     taskListenerSupport.addListener(new TaskListenerAdapter() {
       @Override
       public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
@@ -100,9 +315,11 @@ public class TaskManagerImpl implements TaskManager {
         final String contextId = event.getSource().getContextId();
         final Task task = event.getSource().getTask();
         if (newState != null) {
-          if (newState.isFinalState()) {
-            tasks.remove(contextId);
-            if (task.getMode() == Mode.BLOCKING) {
+          if (newState.isFinalState() || newState == State.RETRYING) {
+            if (newState.isFinalState()) {
+              tasks.remove(contextId);
+            }
+            if (task.getMode() == Mode.BLOCKING && event.getOldValue() == State.STARTED) {
               if (blockingCounter.decrementAndGet() == 0) {
                 blocker.unblock(task.getComponent());
               }
@@ -121,19 +338,489 @@ public class TaskManagerImpl implements TaskManager {
 
   @Override
   public <V, C> TaskControl<V> create(/*@NotNull*/ Task<V, C> task) {
+    return create(task, taskDispatcher);
+  }
+
+  /**
+   * Creates the control for the given task, that executes its worker with the
+   * given executor.
+   */
+  @SuppressWarnings({"unchecked"})
+  private <V, C> TaskControlImpl<V> create(/*@NotNull*/ Task<V, C> task, /*@NotNull*/ Executor dispatcher) {
     Util.checkNotNullArgument(task);
-    TaskContextImpl context = new TaskContextImpl(new TaskWorker<V, C>(task), taskListenerSupport);
-    TaskControlImpl<V> control = new TaskControlImpl<V>(context);
+    if (isShutdown()) {
+      throw new RejectedExecutionException("The task manager has been shut down");
+    }
+    TaskWorker<V, C> worker = new TaskWorker<V, C>(task);
+    Executor executor = dispatcher;
+    ResultCache cache = resultCache;
+    String cacheKey = cache != null && task instanceof Cacheable ? ((Cacheable) task).getCacheKey() : null;
+    boolean cached = false;
+    if (cacheKey != null) {
+      Object value = cache.get(cacheKey);
+      if (value != null) {
+        //the worker completes immediately on the calling thread
+        worker.setResult((V) value);
+        executor = cachedRunner;
+        cached = true;
+      } else {
+        worker.addCompletionListener(new CacheUpdater(cache, cacheKey));
+      }
+    }
+    worker.setAttemptHandler(attemptHandler);
+    worker.setChildExecutor(executorService);
+    worker.setMaxUpdateRate(maxUpdateRate);
+    TaskContextImpl context = new TaskContextImpl(worker, taskListenerSupport);
+    context.setCircuitBreaker(circuitBreaker);
+    TaskControlImpl<V> control = new TaskControlImpl<V>(context, executor);
+    if (singleFlight && !cached) {
+      TaskControlImpl<V> existing = attachInFlight(task, control);
+      if (existing != null) {
+        return existing;
+      }
+    }
     tasks.put(control.getContext().getContextId(), control);
     context.fireStateChangeEvent(null, State.PENDING); //must be after the task-control has been added to the map; so listeners can access it
     return control;
   }
 
+  /**
+   * Runs the given worker either on the executor service of this manager or on the
+   * pool of {@link SwingWorker}. Workers of {@link Serial} tasks are run in their lane
+   * and concurrency limits are applied.
+   *
+   * @param worker
+   */
+  private void dispatch(final TaskWorker<?, ?> worker) {
+    if (worker.isDone()) {
+      //cancelled before it has been executed
+      return;
+    }
+    synchronized (lifecycleLock) {
+      if (shutdown) {
+        log.debug("Task manager is shut down. Cancelling task '{}'", worker.getTask().getId());
+        worker.cancel(true);
+        return;
+      }
+      track(worker);
+    }
+    Task<?, ?> task = worker.getTask();
+    CircuitBreaker breaker = circuitBreaker;
+    if (breaker != null && !breaker.tryAcquire(worker)) {
+      //fails immediately, there is no need to wait for a lane or limit
+      worker.setFailure(new CircuitOpenException("Circuit for task '" + task.getId() + "' is open", task.getId()));
+      workerRunner.execute(worker);
+      return;
+    }
+    if (worker.getTimeout() > 0) {
+      //the timeout starts when the task does, not while it waits for a lane or limit
+      worker.setStartHook(new Runnable() {
+        @Override
+        public void run() {
+          scheduleTimeout(worker);
+        }
+      });
+    }
+    String lane = task instanceof Serial ? ((Serial) task).getLane() : null;
+    if (lane != null) {
+      lanes.execute(lane, 1, worker);
+    } else {
+      limitedRunner.execute(worker);
+    }
+  }
+
+  /**
+   * Adds the given worker to the active workers until it is done.
+   */
+  private void track(final TaskWorker<?, ?> worker) {
+    if (!activeWorkers.add(worker)) {
+      return;
+    }
+    worker.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+          synchronized (lifecycleLock) {
+            activeWorkers.remove(worker);
+            lifecycleLock.notifyAll();
+          }
+          stopSchedulerIfIdle();
+        }
+      }
+    });
+  }
+
+  /**
+   * Dispatches the given worker after the delay. The worker is active while waiting,
+   * and it is cancelled if this manager is shut down meanwhile.
+   */
+  private void dispatchLater(final TaskWorker<?, ?> worker, long delay, TimeUnit unit) {
+    final ScheduledFuture<?> future;
+    synchronized (lifecycleLock) {
+      if (!shutdown) {
+        track(worker);
+        delayedWorkers.add(worker);
+        future = scheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            synchronized (lifecycleLock) {
+              if (!delayedWorkers.remove(worker)) {
+                return;
+              }
+            }
+            dispatch(worker);
+          }
+        }, delay, unit);
+      } else {
+        future = null;
+      }
+    }
+    if (future == null) {
+      log.debug("Task manager is shut down. Cancelling task '{}'", worker.getTask().getId());
+      worker.cancel(true);
+      return;
+    }
+    worker.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+          future.cancel(false);
+          synchronized (lifecycleLock) {
+            delayedWorkers.remove(worker);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * The scheduler is needed as long as there are active workers, e.g. for their timeouts.
+   */
+  private void stopSchedulerIfIdle() {
+    synchronized (lifecycleLock) {
+      if (!shutdown || !activeWorkers.isEmpty()) {
+        return;
+      }
+    }
+    scheduler.shutdown();
+  }
+
+  /**
+   * Creates the worker for the next attempt of the given failed worker and dispatches
+   * it after the delay. The worker is pending meanwhile and can be cancelled. No thread
+   * is blocked while waiting.
+   *
+   * @return the worker of the next attempt, or {@code null} if this manager is shut down
+   */
+  private <V, C> TaskWorker<V, C> scheduleRetry(TaskWorker<V, C> failed, final long delay) {
+    final TaskWorker<V, C> next = new TaskWorker<V, C>(failed.getTask(), failed.getAttempt() + 1);
+    next.setTimeout(failed.getTimeout());
+    next.setAttemptHandler(attemptHandler);
+    next.setChildExecutor(executorService);
+    next.setMaxUpdateRate(maxUpdateRate);
+    synchronized (lifecycleLock) {
+      if (shutdown) {
+        return null;
+      }
+      //the task stays active while waiting for the next attempt
+      track(next);
+    }
+    log.debug("Retrying task '{}' in {}ms (attempt {})", new Object[]{ failed.getTask().getId(), delay, next.getAttempt() });
+    //the delay starts once listeners know about the failed attempt
+    failed.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+          dispatchLater(next, delay, TimeUnit.MILLISECONDS);
+        }
+      }
+    });
+    return next;
+  }
+
+  /**
+   * Limits the number of progress and phase changes that are delivered to listeners
+   * for tasks created afterwards. Updates of a tight loop are coalesced and only the
+   * latest value is delivered. The last value of a task is always delivered.
+   *
+   * @param maxUpdateRate the maximum number of updates per second and task, or a value
+   * {@code <= 0} to deliver every update
+   * @see #DEFAULT_MAX_UPDATE_RATE
+   */
+  public void setMaxUpdateRate(int maxUpdateRate) {
+    this.maxUpdateRate = maxUpdateRate;
+  }
+
+  public int getMaxUpdateRate() {
+    return maxUpdateRate;
+  }
+
+  /**
+   * Sets the number of recent events kept by the {@link #getEventHistory() event history}.
+   * It is <code>0</code> by default, which disables the history. While it is enabled, all
+   * events are created, even if no other listener is interested in them.
+   *
+   * @param size the number of events to keep, <code>0</code> to disable the history
+   */
+  public void setEventHistorySize(int size) {
+    eventHistory.setCapacity(size);
+  }
+
+  public int getEventHistorySize() {
+    return eventHistory.getCapacity();
+  }
+
+  /**
+   * Sets the policy for retrying failed tasks. A task that is retried does not receive
+   * {@link Task#failed(Throwable)} and its {@link TaskControl} completes with the last
+   * attempt. Listeners are notified with the {@link State#RETRYING} state between
+   * attempts.
+   *
+   * @param retryPolicy the policy or {@code null} to not retry tasks
+   */
+  public void setRetryPolicy(/*@Nullable*/ RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  /*@Nullable*/
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Sets the circuit breaker for tasks created afterwards. If the circuit for a task
+   * id is open, tasks with this id fail with a {@link CircuitOpenException} without
+   * being executed and failed tasks are not retried.
+   *
+   * @param circuitBreaker the circuit breaker or {@code null} to disable it
+   */
+  public void setCircuitBreaker(/*@Nullable*/ CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /*@Nullable*/
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * @param id the task id
+   * @return the state of the circuit for the given task id
+   */
+  /*@NotNull*/
+  public CircuitState getCircuitState(/*@NotNull*/ String id) {
+    CircuitBreaker breaker = circuitBreaker;
+    return breaker != null ? breaker.getState(id) : CircuitState.CLOSED;
+  }
+
+  private static String getLimitKey(Task<?, ?> task) {
+    String category = task instanceof Categorized ? ((Categorized) task).getCategory() : null;
+    return category != null ? category : task.getId();
+  }
+
+  /**
+   * Limits the number of tasks that run concurrently for the given key. The key is
+   * the {@link Categorized#getCategory() category} of a task or, if it has none, its
+   * {@link Task#getId() id}. Tasks exceeding the limit wait in a queue for this key
+   * without occupying a thread.
+   *
+   * @param key the task category or id
+   * @param limit the maximum number of concurrently running tasks, a value {@code <= 0}
+   * removes the limit
+   */
+  public void setConcurrencyLimit(/*@NotNull*/ String key, int limit) {
+    Util.checkNotNullArgument(key);
+    if (limit > 0) {
+      concurrencyLimits.put(key, limit);
+    } else {
+      concurrencyLimits.remove(key);
+    }
+  }
+
+  /**
+   * @param key the task category or id
+   * @return the concurrency limit for the given key, or {@code 0} if there is none
+   */
+  public int getConcurrencyLimit(/*@NotNull*/ String key) {
+    Util.checkNotNullArgument(key);
+    Integer limit = concurrencyLimits.get(key);
+    return limit != null ? limit : 0;
+  }
+
+  /**
+   * @param key the task category or id
+   * @return the number of tasks waiting for the concurrency limit of the given key
+   */
+  public int getWaitingCount(/*@NotNull*/ String key) {
+    return bulkheads.getWaitingCount(key);
+  }
+
+  /**
+   * @return the number of tasks waiting for a concurrency limit, per category or id
+   */
+  public Map<String, Integer> getWaitingCounts() {
+    return bulkheads.getWaitingCounts();
+  }
+
+  private void scheduleTimeout(final TaskWorker<?, ?> worker) {
+    final long timeout = worker.getTimeout();
+    if (timeout <= 0) {
+      return;
+    }
+    final ScheduledFuture<?> future;
+    try {
+      future = scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (!worker.isDone() && worker.cancelTimedOut()) {
+            log.info("Cancelled task '{}' after timeout of {}ms", worker.getTask().getId(), timeout);
+          }
+        }
+      }, timeout, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      //shut down now, the worker is cancelled anyways
+      return;
+    }
+    worker.addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+          future.cancel(false);
+        }
+      }
+    });
+  }
+
+  /*@NotNull*/
+  @Override
+  public TaskGraph createGraph() {
+    return new TaskGraphImpl(this);
+  }
+
+  @Override
+  public <V, C> TaskControl<V> schedule(/*@NotNull*/ Task<V, C> task, final long delay, /*@NotNull*/ final TimeUnit unit) {
+    Util.checkNotNullArgument(unit);
+    TaskControlImpl<V> control = create(task, new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        dispatchLater((TaskWorker<?, ?>) command, delay, unit);
+      }
+    });
+    control.execute();
+    return control;
+  }
+
+  @Override
+  public <V, C> ScheduledTask<V> scheduleAtFixedRate(/*@NotNull*/ Task<V, C> task, long initialDelay, long period, /*@NotNull*/ TimeUnit unit) {
+    return schedulePeriodic(task, initialDelay, period, unit, true);
+  }
+
+  @Override
+  public <V, C> ScheduledTask<V> scheduleWithFixedDelay(/*@NotNull*/ Task<V, C> task, long initialDelay, long delay, /*@NotNull*/ TimeUnit unit) {
+    return schedulePeriodic(task, initialDelay, delay, unit, false);
+  }
+
+  private <V, C> ScheduledTask<V> schedulePeriodic(Task<V, C> task, long initialDelay, long delay, TimeUnit unit, boolean fixedRate) {
+    PeriodicTask<V, C> periodic = new PeriodicTask<V, C>(this, scheduler, task, delay, unit, fixedRate);
+    synchronized (lifecycleLock) {
+      if (shutdown) {
+        throw new RejectedExecutionException("The task manager has been shut down");
+      }
+      Iterator<PeriodicTask<?, ?>> iter = periodicTasks.iterator();
+      while (iter.hasNext()) {
+        if (iter.next().isCancelled()) {
+          iter.remove();
+        }
+      }
+      periodicTasks.add(periodic);
+      periodic.start(initialDelay, unit);
+    }
+    return periodic;
+  }
+
+  @Override
+  public <V, C> TaskControl<V> createDebounced(/*@NotNull*/ Task<V, C> task, long quietPeriod, /*@NotNull*/ TimeUnit unit) {
+    return debouncer.submit(task, quietPeriod, unit);
+  }
+
+  /**
+   * Registers the given control as the in-flight execution for its task id. If there
+   * is already an execution for this id, the task is attached to it and the existing
+   * control is returned.
+   *
+   * @return the control of the existing execution, or {@code null} if {@code control}
+   * has been registered
+   */
+  @SuppressWarnings({"unchecked"})
+  private <V, C> TaskControlImpl<V> attachInFlight(Task<V, C> task, final TaskControlImpl<V> control) {
+    final String id = task.getId();
+    while (true) {
+      TaskControlImpl<V> existing = (TaskControlImpl<V>) inFlight.putIfAbsent(id, control);
+      if (existing == null) {
+        control.getWorker().addCompletionListener(new PropertyChangeListener() {
+          @Override
+          public void propertyChange(PropertyChangeEvent evt) {
+            inFlight.remove(id, control);
+          }
+        });
+        return null;
+      }
+      TaskWorker<V, C> worker = (TaskWorker<V, C>) existing.getWorker();
+      if (worker.attach(task)) {
+        log.debug("Attached task '{}' to execution {}", id, existing.getContext().getContextId());
+        return existing;
+      }
+      inFlight.remove(id, existing);
+    }
+  }
+
+  /**
+   * Sets the cache for results of {@link Cacheable} tasks. If a task is created
+   * whose result is in the cache, it is not executed and completes with the
+   * cached value once started. It goes through the same states and events as
+   * other tasks and counts as active until done, but it neither waits for a
+   * lane or concurrency limit nor for a pool thread.
+   *
+   * @param resultCache the cache to use or {@code null} to disable caching
+   */
+  public void setResultCache(/*@Nullable*/ ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /*@Nullable*/
+  public ResultCache getResultCache() {
+    return resultCache;
+  }
+
+  /**
+   * Enables or disables single-flight mode. If enabled, creating a task while another
+   * task with the same {@link Task#getId() id} is pending or running returns the
+   * {@link TaskControl} of the existing execution. The new task is not executed, but
+   * receives the result of the existing one through {@link Task#done(Object)} or
+   * {@link Task#failed(Throwable)}. Listeners added to the returned control receive
+   * the events of the shared execution.
+   *
+   * @param singleFlight
+   */
+  public void setSingleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+  }
+
+  public boolean isSingleFlight() {
+    return singleFlight;
+  }
+
   @Override
   public TaskListenerSupport getTaskListenerSupport() {
     return taskListenerSupport;
   }
 
+  /*@NotNull*/
+  @Override
+  public TaskEventHistory getEventHistory() {
+    return eventHistory;
+  }
+
   @Override
   public Iterable<TaskControl> getTasks(/*@NotNull*/ TaskPredicate predicate) {
     Util.checkNotNullArgument(predicate);
@@ -158,10 +845,150 @@ public class TaskManagerImpl implements TaskManager {
     return executorService.submit(task);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Tasks that have not been started yet, because they wait for a delayed start,
+   * a retry or the end of a debounce period, are cancelled immediately. Periodic
+   * tasks are cancelled. The scheduler of this manager is stopped once all tasks
+   * are done.
+   */
+  @Override
+  public void shutdown() {
+    List<TaskWorker<?, ?>> delayed;
+    List<PeriodicTask<?, ?>> periodic;
+    synchronized (lifecycleLock) {
+      if (shutdown) {
+        return;
+      }
+      shutdown = true;
+      delayed = new ArrayList<TaskWorker<?, ?>>(delayedWorkers);
+      delayedWorkers.clear();
+      periodic = new ArrayList<PeriodicTask<?, ?>>(periodicTasks);
+      periodicTasks.clear();
+      lifecycleLock.notifyAll();
+    }
+    log.debug("Shutting down task manager");
+    for (PeriodicTask<?, ?> task : periodic) {
+      task.cancel();
+    }
+    for (TaskWorker<?, ?> worker : delayed) {
+      worker.cancel(true);
+    }
+    debouncer.cancelPending();
+    executorService.shutdown();
+    stopSchedulerIfIdle();
+  }
+
+  @Override
+  public void shutdownNow() {
+    shutdown();
+    Set<TaskWorker<?, ?>> workers;
+    synchronized (lifecycleLock) {
+      workers = new HashSet<TaskWorker<?, ?>>(activeWorkers);
+    }
+    for (TaskWorker<?, ?> worker : workers) {
+      worker.cancel(true);
+    }
+    for (TaskControl<?> control : tasks.values()) {
+      control.cancel();
+    }
+    executorService.shutdownNow();
+    //all delayed dispatches have been cancelled, only timeouts of cancelled workers are left
+    List<Runnable> dropped = scheduler.shutdownNow();
+    if (!dropped.isEmpty()) {
+      log.debug("Dropped {} timers of cancelled tasks", dropped.size());
+    }
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (lifecycleLock) {
+      return shutdown;
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, /*@NotNull*/ TimeUnit unit) throws InterruptedException {
+    Util.checkNotNullArgument(unit);
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    if (SwingUtilities.isEventDispatchThread()) {
+      //the final state of a worker is delivered on the EDT, so it must not be blocked
+      final TaskFutureImpl<Boolean> terminated = new TaskFutureImpl<Boolean>();
+      Thread waiter = THREAD_FACTORY.newThread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            terminated.set(awaitTerminationUntil(deadline));
+          } catch (InterruptedException e) {
+            terminated.set(false);
+          }
+        }
+      });
+      waiter.start();
+      Util.pumpEvents(terminated, -1, unit);
+      try {
+        return terminated.get();
+      } catch (ExecutionException e) {
+        return false;
+      }
+    }
+    return awaitTerminationUntil(deadline);
+  }
+
+  private boolean awaitTerminationUntil(long deadline) throws InterruptedException {
+    synchronized (lifecycleLock) {
+      while (!shutdown || !activeWorkers.isEmpty()) {
+        long left = deadline - System.nanoTime();
+        if (left <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(lifecycleLock, left);
+      }
+    }
+    if (!executorService.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+      return false;
+    }
+    //all workers are done, so nothing depends on the scheduler anymore
+    scheduler.shutdown();
+    return scheduler.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the executor service of this manager. It may be used to run
+   * continuations of {@link org.eknet.swing.task.TaskFuture}s in the background.
+   *
+   * @return the executor service
+   */
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
   @Override
   public TaskControl getTask(/*@NotNull*/ String contextId) {
     Util.checkNotNullArgument(contextId);
     return tasks.get(contextId);
   }
 
+  private static class CacheUpdater implements PropertyChangeListener {
+    private final ResultCache cache;
+    private final String key;
+
+    private CacheUpdater(ResultCache cache, String key) {
+      this.cache = cache;
+      this.key = key;
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+      TaskWorker<?, ?> worker = (TaskWorker<?, ?>) evt.getSource();
+      if (!worker.isCancelled() && !worker.isError()) {
+        try {
+          cache.put(key, worker.get());
+        } catch (Exception e) {
+          log.debug("Unable to get result of task " + key, e);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskFuture;
+import org.eknet.swing.task.TaskScope;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * Runs child tasks on an executor and rolls their progress up into the tracker
+ * of the parent. Each child has a sub-tracker of the parent with weight 1.
+ * <p/>
+ * Each child is a {@link FutureTask}. It is submitted to the executor, but {@link #join()}
+ * runs children that have not been started yet on the joining thread. So a parent
+ * waiting for its children does not depend on a free thread of a bounded pool.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:45
+ */
+public class TaskScopeImpl<C> implements TaskScope<C> {
+  private final static Logger log = LoggerFactory.getLogger(TaskScopeImpl.class);
+
+  private final AbstractTracker<C> parent;
+  private final Executor executor;
+
+  private final List<Child<?>> children = new ArrayList<Child<?>>(); //guarded by this
+  private boolean cancelled = false; //guarded by this
+  private Throwable failure; //guarded by this
+
+  /**
+   * @param parent the tracker of the parent task
+   * @param executor the executor to run the children on, or {@code null} for a
+   * shared pool of daemon threads
+   */
+  public TaskScopeImpl(/*@NotNull*/ AbstractTracker<C> parent, /*@Nullable*/ Executor executor) {
+    Util.checkNotNullArgument(parent);
+    this.parent = parent;
+    this.executor = executor != null ? executor : DefaultExecutor.INSTANCE;
+  }
+
+  /*@NotNull*/
+  @Override
+  public <V> TaskFuture<V> fork(/*@NotNull*/ final Task<V, C> task) {
+    Util.checkNotNullArgument(task);
+    TaskCall<V> call = new TaskCall<V>(task);
+    Child<V> child = new Child<V>(call, task);
+    call.tracker = child.tracker;
+    return start(child);
+  }
+
+  /*@NotNull*/
+  @Override
+  public <V> TaskFuture<V> fork(/*@NotNull*/ Callable<V> callable) {
+    Util.checkNotNullArgument(callable);
+    return start(new Child<V>(callable, null));
+  }
+
+  private <V> TaskFuture<V> start(Child<V> child) {
+    boolean rejected;
+    synchronized (this) {
+      rejected = cancelled;
+      if (!rejected) {
+        //the weight must be registered before the child can be cancelled by the scope
+        parent.addSplitWeight(1);
+        child.registered = true;
+        children.add(child);
+      }
+    }
+    if (rejected) {
+      child.cancel(false);
+      return child.future;
+    }
+    try {
+      executor.execute(child);
+    } catch (RejectedExecutionException e) {
+      log.debug("Child task has been rejected, it is run when joining the scope");
+    }
+    return child.future;
+  }
+
+  @Override
+  public void join() throws InterruptedException, ExecutionException {
+    try {
+      for (int i = 0; ; i++) {
+        Child<?> child;
+        synchronized (this) {
+          if (i >= children.size()) {
+            break;
+          }
+          child = children.get(i);
+        }
+        //runs the child here, if it has not been started yet
+        child.run();
+        try {
+          //the future is completed after the child's progress and failure are recorded
+          child.future.get();
+        } catch (CancellationException e) {
+          //reported below
+        } catch (ExecutionException e) {
+          //reported below
+        }
+      }
+    } catch (InterruptedException e) {
+      cancel();
+      throw e;
+    }
+    synchronized (this) {
+      if (failure != null) {
+        throw new ExecutionException(failure);
+      }
+      if (cancelled) {
+        throw new CancellationException("The scope has been cancelled");
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    List<Child<?>> toCancel;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      toCancel = new ArrayList<Child<?>>(children);
+    }
+    for (Child<?> child : toCancel) {
+      child.cancel(true);
+    }
+  }
+
+  @Override
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  private void childDone(Child<?> child, Throwable cause) {
+    if (cause != null && !(cause instanceof CancellationException)) {
+      synchronized (this) {
+        if (failure == null) {
+          failure = cause;
+        }
+      }
+      //the remaining children are of no use anymore
+      cancel();
+    }
+    //a child rejected by a cancelled scope has no weight in the parent
+    if (child.registered) {
+      child.tracker.setScaledProgress(AbstractTracker.SCALE);
+    }
+  }
+
+  private final class TaskCall<V> implements Callable<V> {
+    private final Task<V, C> task;
+    private Tracker<C> tracker;
+
+    private TaskCall(Task<V, C> task) {
+      this.task = task;
+    }
+
+    @Override
+    public V call() throws Exception {
+      return task.execute(tracker);
+    }
+  }
+
+  private final class Child<V> extends FutureTask<V> {
+    private final Task<V, C> task;
+    private final TaskFutureImpl<V> future = new TaskFutureImpl<V>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        return Child.this.cancel(mayInterruptIfRunning);
+      }
+    };
+    private final List<TaskScope<?>> scopes = new ArrayList<TaskScope<?>>(); //guarded by itself
+    private final ChildTracker tracker = new ChildTracker(this);
+    private volatile boolean registered = false;
+
+    private Child(Callable<V> callable, /*@Nullable*/ Task<V, C> task) {
+      super(callable);
+      this.task = task;
+    }
+
+    private void bind(TaskScope<?> scope) {
+      synchronized (scopes) {
+        if (!isDone()) {
+          scopes.add(scope);
+          return;
+        }
+      }
+      scope.cancel();
+    }
+
+    @Override
+    protected void done() {
+      List<TaskScope<?>> nested;
+      synchronized (scopes) {
+        nested = new ArrayList<TaskScope<?>>(scopes);
+        scopes.clear();
+      }
+      for (TaskScope<?> scope : nested) {
+        scope.cancel();
+      }
+      Throwable cause = null;
+      V value = null;
+      try {
+        value = get();
+      } catch (CancellationException e) {
+        cause = e;
+      } catch (ExecutionException e) {
+        cause = e.getCause() != null ? e.getCause() : e;
+      } catch (InterruptedException e) {
+        cause = e;
+      }
+      childDone(this, cause);
+      if (cause != null) {
+        future.setFailure(cause);
+      } else {
+        future.set(value);
+      }
+      if (task != null) {
+        notifyTask(value, cause);
+      }
+    }
+
+    private void notifyTask(final V value, final Throwable cause) {
+      EdtExecutor.INSTANCE.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (cause == null) {
+            task.done(value);
+          } else {
+            task.failed(cause);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * The tracker of a child. Nested scopes are bound to the child.
+   */
+  private final class ChildTracker extends SubTracker<C> {
+    private final Child<?> child;
+
+    private ChildTracker(Child<?> child) {
+      super(parent, 1);
+      this.child = child;
+    }
+
+    @Override
+    void bindScope(/*@NotNull*/ TaskScope<?> scope) {
+      child.bind(scope);
+    }
+  }
+
+  private static final class DefaultExecutor {
+    private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+      private final ThreadFactory defaultTf = Executors.defaultThreadFactory();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = defaultTf.newThread(r);
+        t.setName("SwingTask-scope-" + t.getName());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+}
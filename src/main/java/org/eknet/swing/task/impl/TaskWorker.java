@@ -18,17 +18,26 @@ package org.eknet.swing.task.impl;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingWorker;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.eknet.swing.task.Mode;
 import org.eknet.swing.task.Task;
 import org.eknet.swing.task.TaskContext;
+import org.eknet.swing.task.TaskScope;
+import org.eknet.swing.task.TaskTimeoutException;
+import org.eknet.swing.task.TimeLimited;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -39,17 +48,59 @@ public class TaskWorker<V, C> extends SwingWorker<V, C> implements PropertyChang
   
   private final Task<V, C> task;
 
-  private String phase;
+  private volatile String phase;
+  private String deliveredPhase; //guarded by phaseLock
+  private final Object phaseLock = new Object();
+  private volatile int latestProgress;
+
+  private volatile UpdateThrottle progressThrottle;
+  private volatile UpdateThrottle phaseThrottle;
   private Long startedTimestamp = null;
   private Long finishedTimestamp = null;
 
   private boolean error = false;
 
-  private TaskContext context;
+  private V result;
+  private boolean resultAvailable = false;
+  private Exception failure;
+
+  private final int attempt;
+  private volatile AttemptHandler attemptHandler;
+  private volatile Runnable startHook;
+  private volatile TaskWorker<V, C> successor;
+  private volatile boolean doneDelivered = false;
+  private volatile Executor childExecutor;
+
+  private volatile long timeout;
+  private volatile boolean timedOut = false;
+
+  private final List<Task<V, C>> followers = new ArrayList<Task<V, C>>();
+  private boolean completed = false; //guarded by followers
+
+  private static final int NEW = 0;
+  private static final int RUNNING = 1;
+  private static final int FINISHED = 2;
+
+  private final AtomicInteger runState = new AtomicInteger(NEW);
+  private final List<Runnable> finishHooks = new ArrayList<Runnable>(); //guarded by itself
+
+  private volatile TaskContext context;
 
   public TaskWorker(/*@NotNull*/ Task<V, C> task) {
+    this(task, 1);
+  }
+
+  /**
+   * Creates a worker for the given attempt to execute the task.
+   *
+   * @param task
+   * @param attempt the attempt, starting with 1
+   */
+  public TaskWorker(/*@NotNull*/ Task<V, C> task, int attempt) {
     Util.checkNotNullArgument(task);
     this.task = task;
+    this.attempt = attempt;
+    this.timeout = task instanceof TimeLimited ? ((TimeLimited) task).getTimeout() : 0;
     //to have a startedTimestamp set when the first TaskListener
     //gets the started-change, we add this as the first property
     //listener that sets the startedTimestamp property.
@@ -58,13 +109,284 @@ public class TaskWorker<V, C> extends SwingWorker<V, C> implements PropertyChang
 
   @Override
   protected V doInBackground() throws Exception {
-    TrackerImpl<C> tracker = new TrackerImpl<C>(this);
-    return task.execute(tracker);
+    if (!runState.compareAndSet(NEW, RUNNING)) {
+      //this worker has been cancelled and already released
+      throw new CancellationException();
+    }
+    Runnable hook = startHook;
+    if (hook != null) {
+      hook.run();
+    }
+    AttemptHandler handler = attemptHandler;
+    try {
+      if (resultAvailable) {
+        return result;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      TrackerImpl<C> tracker = new TrackerImpl<C>(this);
+      V value = task.execute(tracker);
+      if (handler != null) {
+        handler.succeeded(this);
+      }
+      return value;
+    } catch (Exception e) {
+      if (handler != null && e != failure && !isCancelled()) {
+        successor = handler.failed(this, e);
+      }
+      throw e;
+    } finally {
+      finish();
+    }
+  }
+
+  /**
+   * Adds a hook that is invoked once this worker is finished: either the task's
+   * {@link Task#execute(org.eknet.swing.task.Tracker)} method returned or the worker
+   * has been cancelled before it was started. Other than the {@code DONE} state of
+   * the worker, this guarantees that the task is no longer running. The hook is
+   * invoked on the worker thread or on the EDT.
+   * <p/>
+   * If this worker is already finished, the hook is run immediately.
+   *
+   * @param hook
+   */
+  void addFinishHook(/*@NotNull*/ Runnable hook) {
+    Util.checkNotNullArgument(hook);
+    synchronized (finishHooks) {
+      if (runState.get() != FINISHED) {
+        finishHooks.add(hook);
+        return;
+      }
+    }
+    hook.run();
+  }
+
+  private void finish() {
+    //the final values are always delivered, before the worker is done
+    flushUpdates();
+    List<Runnable> hooks;
+    synchronized (finishHooks) {
+      runState.set(FINISHED);
+      hooks = new ArrayList<Runnable>(finishHooks);
+      finishHooks.clear();
+    }
+    for (Runnable hook : hooks) {
+      try {
+        hook.run();
+      } catch (RuntimeException e) {
+        log.error("Finish hook of task '" + task.getId() + "' failed", e);
+      }
+    }
   }
 
   @Override
   protected void process(List<C> chunks) {
     task.process(chunks);
+    for (Task<V, C> follower : getFollowers()) {
+      follower.process(chunks);
+    }
+  }
+
+  /**
+   * Sets the result of this worker in advance. The task is then not executed, but
+   * completes with the given value.
+   *
+   * @param result
+   */
+  void setResult(V result) {
+    this.result = result;
+    this.resultAvailable = true;
+  }
+
+  /**
+   * Limits the number of progress and phase changes delivered to listeners. Updates
+   * in between are coalesced, so only the latest value is delivered. The last value
+   * is always delivered before the worker is done.
+   *
+   * @param maxRate the maximum number of updates per second, or a value {@code <= 0}
+   * to deliver every update
+   */
+  void setMaxUpdateRate(int maxRate) {
+    if (maxRate > 0) {
+      progressThrottle = new UpdateThrottle(maxRate, new Runnable() {
+        @Override
+        public void run() {
+          deliverProgress();
+        }
+      });
+      phaseThrottle = new UpdateThrottle(maxRate, new Runnable() {
+        @Override
+        public void run() {
+          deliverPhase();
+        }
+      });
+    } else {
+      progressThrottle = null;
+      phaseThrottle = null;
+    }
+  }
+
+  private void flushUpdates() {
+    UpdateThrottle throttle = progressThrottle;
+    if (throttle != null) {
+      throttle.flush();
+    }
+    throttle = phaseThrottle;
+    if (throttle != null) {
+      throttle.flush();
+    }
+  }
+
+  /**
+   * @return the executor to run child tasks on, or {@code null} for a default one
+   */
+  /*@Nullable*/
+  Executor getChildExecutor() {
+    return childExecutor;
+  }
+
+  void setChildExecutor(/*@Nullable*/ Executor childExecutor) {
+    this.childExecutor = childExecutor;
+  }
+
+  /**
+   * Binds the given scope to this worker. It is cancelled once this worker is
+   * cancelled or finished.
+   *
+   * @param scope
+   */
+  void bind(/*@NotNull*/ final TaskScope<?> scope) {
+    addPropertyChangeListener(new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == StateValue.DONE) {
+          scope.cancel();
+        }
+      }
+    });
+    addFinishHook(new Runnable() {
+      @Override
+      public void run() {
+        scope.cancel();
+      }
+    });
+  }
+
+  /**
+   * Lets this worker fail with the given exception. The task is then not executed.
+   *
+   * @param failure
+   */
+  void setFailure(/*@NotNull*/ Exception failure) {
+    Util.checkNotNullArgument(failure);
+    this.failure = failure;
+  }
+
+  void setAttemptHandler(/*@Nullable*/ AttemptHandler attemptHandler) {
+    this.attemptHandler = attemptHandler;
+  }
+
+  /**
+   * Sets a hook that is invoked on the worker thread once this worker actually
+   * starts, that is after it waited for lanes and concurrency limits and before
+   * the task is executed. It is not invoked if the worker is cancelled before.
+   *
+   * @param startHook
+   */
+  void setStartHook(/*@Nullable*/ Runnable startHook) {
+    this.startHook = startHook;
+  }
+
+  /**
+   * @return the attempt of this worker, starting with 1
+   */
+  public int getAttempt() {
+    return attempt;
+  }
+
+  /**
+   * Returns the worker that executes the next attempt, after this one failed. It is
+   * set before this worker is done.
+   *
+   * @return the worker of the next attempt, or {@code null} if the task is not retried
+   */
+  /*@Nullable*/
+  TaskWorker<V, C> getSuccessor() {
+    return successor;
+  }
+
+  /**
+   * Adds a listener that receives the {@code DONE} state change of the last attempt,
+   * thus the final completion of the task. The source of the event is the worker of
+   * the last attempt. If the task is already completed, the listener is invoked
+   * immediately.
+   *
+   * @param listener
+   */
+  void addCompletionListener(/*@NotNull*/ final PropertyChangeListener listener) {
+    Util.checkNotNullArgument(listener);
+    final AtomicBoolean notified = new AtomicBoolean(false);
+    PropertyChangeListener forward = new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == StateValue.DONE
+                && notified.compareAndSet(false, true)) {
+          TaskWorker<V, C> next = successor;
+          if (next == null) {
+            listener.propertyChange(evt);
+          } else {
+            next.addCompletionListener(listener);
+          }
+        }
+      }
+    };
+    addPropertyChangeListener(forward);
+    if (doneDelivered) {
+      forward.propertyChange(newDoneEvent());
+    }
+  }
+
+  /**
+   * @return whether the {@code DONE} state change of this worker has been delivered
+   * to its listeners
+   */
+  boolean isDoneDelivered() {
+    return doneDelivered;
+  }
+
+  PropertyChangeEvent newDoneEvent() {
+    return new PropertyChangeEvent(this, "state", StateValue.STARTED, StateValue.DONE);
+  }
+
+  /**
+   * Attaches another task to this execution. The given task is not executed, but
+   * its {@link Task#done(Object)}, {@link Task#failed(Throwable)} and
+   * {@link Task#process(List)} methods are invoked like the ones of this worker's task.
+   *
+   * @param follower
+   * @return {@code true} if the task has been attached, {@code false} if this worker
+   * has already completed
+   */
+  boolean attach(/*@NotNull*/ Task<V, C> follower) {
+    Util.checkNotNullArgument(follower);
+    synchronized (followers) {
+      if (completed) {
+        return false;
+      }
+      followers.add(follower);
+      return true;
+    }
+  }
+
+  private List<Task<V, C>> getFollowers() {
+    synchronized (followers) {
+      if (followers.isEmpty()) {
+        return Collections.<Task<V, C>>emptyList();
+      }
+      return new ArrayList<Task<V, C>>(followers);
+    }
   }
 
   public void setContext(TaskContext context) {
@@ -74,26 +396,66 @@ public class TaskWorker<V, C> extends SwingWorker<V, C> implements PropertyChang
   @Override
   protected void done() {
     this.finishedTimestamp = System.currentTimeMillis();
+    List<Task<V, C>> tasks = new ArrayList<Task<V, C>>();
+    tasks.add(task);
+    synchronized (followers) {
+      completed = true;
+      tasks.addAll(followers);
+    }
+    TaskWorker<V, C> next = successor;
+    if (next != null) {
+      log.debug("Attempt {} of task '{}' failed. Retrying.", attempt, task.getId());
+      for (Task<V, C> follower : tasks.subList(1, tasks.size())) {
+        if (!next.attach(follower)) {
+          follower.failed(new CancellationException());
+        }
+      }
+      return;
+    }
+    V value;
     try {
-      task.done(get());
+      value = get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       log.error("Interrupted during get()", e);
-      task.failed(e);
+      fireFailed(tasks, e);
+      return;
     } catch (CancellationException e) {
-      log.debug("Task '{}/{}' cancelled by user", task.getId(), getContextId());
-      task.failed(e);
+      if (isTimedOut()) {
+        log.debug("Task '{}/{}' timed out", task.getId(), getContextId());
+        fireFailed(tasks, newTimeoutException());
+      } else {
+        log.debug("Task '{}/{}' cancelled by user", task.getId(), getContextId());
+        fireFailed(tasks, e);
+      }
+      return;
     } catch (Exception e) {
       this.error = true;
       log.debug("Error executing task " + task.getId() + "/" + getContextId(), e);
       if (e instanceof ExecutionException) {
-        task.failed(e.getCause());
+        fireFailed(tasks, e.getCause());
       } else {
-        task.failed(e);
+        fireFailed(tasks, e);
+      }
+      return;
+    }
+    //the task itself succeeded, so a failing callback must neither fail the
+    //other tasks nor keep them from receiving the result
+    for (Task<V, C> t : tasks) {
+      try {
+        t.done(value);
+      } catch (RuntimeException e) {
+        log.error("Task '" + t.getId() + "' failed to handle its result", e);
       }
     }
   }
 
+  private void fireFailed(List<Task<V, C>> tasks, Throwable cause) {
+    for (Task<V, C> t : tasks) {
+      t.failed(cause);
+    }
+  }
+
   private String getContextId() {
     if (context != null) {
       return context.getContextId();
@@ -117,6 +479,38 @@ public class TaskWorker<V, C> extends SwingWorker<V, C> implements PropertyChang
     return error;
   }
 
+  /**
+   * @return the timeout of this worker in milliseconds, or a value {@code <= 0} for none
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Cancels this worker, because its timeout elapsed.
+   *
+   * @return {@code true} if the worker has been cancelled
+   */
+  boolean cancelTimedOut() {
+    timedOut = true;
+    return cancel(true);
+  }
+
+  TaskTimeoutException newTimeoutException() {
+    return new TaskTimeoutException("Task " + task.getId() + " exceeded its timeout of " + timeout + "ms", timeout);
+  }
+
+  /**
+   * @return whether this worker has been cancelled due to its timeout
+   */
+  public boolean isTimedOut() {
+    return timedOut && isCancelled();
+  }
+
   public Task<V, C> getTask() {
     return task;
   }
@@ -132,24 +526,101 @@ public class TaskWorker<V, C> extends SwingWorker<V, C> implements PropertyChang
         if (o == StateValue.PENDING && n == StateValue.STARTED) {
           this.startedTimestamp = System.currentTimeMillis();
         }
+        if (n == StateValue.DONE) {
+          //this is the first listener, so the flag is set before others are notified
+          doneDelivered = true;
+        }
+        if (n == StateValue.DONE && runState.compareAndSet(NEW, FINISHED)) {
+          //cancelled before doInBackground() has been invoked
+          finish();
+        }
       }
     }
   }
 
 
   // ~~ delegates from Tracker
-  
+
+  // updates of a cancelled task are dropped, they would only queue
+  // up on the EDT without anyone being interested in them
+
   void publishProgress(int progress) {
-    super.setProgress(progress);
+    if (isCancelled()) {
+      return;
+    }
+    if (progress < 0 || progress > 100) {
+      throw new IllegalArgumentException("the value should be from 0 to 100");
+    }
+    latestProgress = progress;
+    if (!isObserved(TaskListenerEmitter.PROGRESS)) {
+      return;
+    }
+    UpdateThrottle throttle = progressThrottle;
+    if (throttle != null) {
+      throttle.update();
+    } else {
+      deliverProgress();
+    }
+  }
+
+  /**
+   * Updates nobody listens to are not delivered at all. Silent tasks never fire
+   * progress or phase events.
+   */
+  private boolean isObserved(int kind) {
+    if (task.getMode() == Mode.SILENT) {
+      return false;
+    }
+    TaskContext c = context;
+    return !(c instanceof TaskContextImpl) || ((TaskContextImpl) c).isObserved(kind);
+  }
+
+  /**
+   * @return the latest progress set by the task, which may not have been
+   * delivered to listeners yet
+   */
+  int getLatestProgress() {
+    return latestProgress;
+  }
+
+  private void deliverProgress() {
+    if (!isCancelled()) {
+      super.setProgress(latestProgress);
+    }
   }
 
   void publishChunks(C... chunks) {
-    super.publish(chunks);
+    if (!isCancelled()) {
+      super.publish(chunks);
+    }
   }
 
   public void setPhase(String phase) {
-    final String oldphase = this.phase;
+    if (isCancelled()) {
+      return;
+    }
     this.phase = phase;
-    firePropertyChange("phase", oldphase, phase);
+    if (!isObserved(TaskListenerEmitter.PHASE)) {
+      return;
+    }
+    UpdateThrottle throttle = phaseThrottle;
+    if (throttle != null) {
+      throttle.update();
+    } else {
+      deliverPhase();
+    }
+  }
+
+  private void deliverPhase() {
+    final String oldphase;
+    final String newphase;
+    synchronized (phaseLock) {
+      oldphase = deliveredPhase;
+      newphase = phase;
+      deliveredPhase = newphase;
+    }
+    if (!isCancelled()) {
+      firePropertyChange("phase", oldphase, newphase);
+    }
   }
 }
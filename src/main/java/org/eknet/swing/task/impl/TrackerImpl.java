@@ -16,15 +16,22 @@
 
 package org.eknet.swing.task.impl;
 
-import org.eknet.swing.task.Tracker;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eknet.swing.task.TaskScope;
 
 /**
+ * The tracker of a {@link TaskWorker}. Progress is only published if the percentage
+ * changed, so frequent updates of sub-trackers are cheap.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 20.07.11 21:44
  */
-public class TrackerImpl<C> implements Tracker<C> {
+public class TrackerImpl<C> extends AbstractTracker<C> {
 
   private final TaskWorker<?, C> worker;
+  private final AtomicInteger percent = new AtomicInteger(0);
 
   public TrackerImpl(TaskWorker<?, C> worker) {
     this.worker = worker;
@@ -33,17 +40,14 @@ public class TrackerImpl<C> implements Tracker<C> {
   @Override
   public void setProgress(int progress) {
     worker.publishProgress(progress);
+    percent.set(progress);
   }
 
   @Override
-  public void setProgress(int min, int max, int current) {
-    if (current <= max && min <= max && current >= min) {
-      int distance = max - min;
-      if (distance == 0) {
-        distance = 1;
-      }
-      int value = (current * 100) / distance;
-      setProgress(value);
+  protected void setScaledProgress(long progress) {
+    int value = (int) (progress * 100 / SCALE);
+    if (percent.getAndSet(value) != value) {
+      worker.publishProgress(value);
     }
   }
 
@@ -56,4 +60,14 @@ public class TrackerImpl<C> implements Tracker<C> {
   public void setPhase(String phase) {
     worker.setPhase(phase);
   }
+
+  @Override
+  Executor getScopeExecutor() {
+    return worker.getChildExecutor();
+  }
+
+  @Override
+  void bindScope(/*@NotNull*/ TaskScope<?> scope) {
+    worker.bind(scope);
+  }
 }
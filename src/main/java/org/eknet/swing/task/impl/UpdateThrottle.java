@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.Timer;
+
+/**
+ * Limits how often a value is delivered. Updates within the interval after a
+ * delivery are coalesced: only the latest value is delivered when the interval
+ * elapsed. The value itself is held by the caller, the {@code delivery} reads it.
+ * <p/>
+ * The delayed delivery is done by a {@link Timer} and thus runs on the EDT. No
+ * thread is blocked. The timer is reused for all delayed deliveries.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:05
+ */
+final class UpdateThrottle {
+
+  private final long intervalNanos;
+  private final Runnable delivery;
+  private final Timer timer;
+
+  private final AtomicBoolean pending = new AtomicBoolean(false);
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  private volatile long lastDelivery;
+
+  /**
+   * @param maxRate the maximum number of deliveries per second
+   * @param delivery delivers the latest value
+   */
+  UpdateThrottle(int maxRate, /*@NotNull*/ Runnable delivery) {
+    Util.checkNotNullArgument(delivery);
+    if (maxRate <= 0) {
+      throw new IllegalArgumentException("maxRate must be > 0: " + maxRate);
+    }
+    this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / maxRate;
+    this.delivery = delivery;
+    this.lastDelivery = System.nanoTime() - intervalNanos;
+    this.timer = new Timer(0, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        scheduled.set(false);
+        flush();
+      }
+    });
+    this.timer.setRepeats(false);
+    //a restart while the previous event is delivered must not be coalesced with it
+    this.timer.setCoalesce(false);
+  }
+
+  /**
+   * Notifies about a new value. It is delivered immediately if the interval
+   * elapsed, otherwise a delivery is scheduled.
+   */
+  void update() {
+    pending.set(true);
+    long wait = intervalNanos - (System.nanoTime() - lastDelivery);
+    if (wait <= 0 && !scheduled.get()) {
+      flush();
+    } else if (scheduled.compareAndSet(false, true)) {
+      //only one delivery is scheduled at a time, so the timer is not running
+      timer.setInitialDelay((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+      timer.start();
+    }
+  }
+
+  /**
+   * Delivers the latest value now, if it has not been delivered yet.
+   */
+  void flush() {
+    if (pending.getAndSet(false)) {
+      lastDelivery = System.nanoTime();
+      delivery.run();
+    }
+  }
+}
@@ -2,9 +2,21 @@ package org.eknet.swing.task.impl;
 
 import java.awt.Component;
 import java.awt.Rectangle;
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
 import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.eknet.swing.task.TaskCallback;
+import org.eknet.swing.task.TaskFuture;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -14,6 +26,16 @@ public final class Util {
 
   private Util() {}
 
+  /**
+   * An executor that runs commands on the calling thread.
+   */
+  public static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
   public static <T> T findComponent(Component component, /*@NotNull*/ Class<T> type) {
     checkNotNullArgument(type);
     while (component != null) {
@@ -128,4 +150,57 @@ public final class Util {
   public static void checkNotNullState(Object obj) {
     checkNotNullArgument(obj, null);
   }
+
+  /**
+   * Blocks the EDT while dispatching events in a {@link SecondaryLoop} until the given
+   * future has completed. Thus the ui is still repainted and tasks can deliver their
+   * results on the EDT. Must be called on the EDT.
+   *
+   * @param future
+   * @param timeout the maximum time to wait, a negative value waits forever
+   * @param unit
+   * @return {@code true} if the future has completed, {@code false} if the timeout elapsed
+   */
+  public static <V> boolean pumpEvents(/*@NotNull*/ TaskFuture<V> future, long timeout, /*@NotNull*/ TimeUnit unit) {
+    checkNotNullArgument(future);
+    checkNotNullArgument(unit);
+    if (future.isDone()) {
+      return true;
+    }
+    final SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+    //exit is always posted to the event queue, so it cannot happen before entering the loop
+    final Runnable exit = new Runnable() {
+      @Override
+      public void run() {
+        loop.exit();
+      }
+    };
+    future.addCallback(new TaskCallback<V>() {
+      @Override
+      public void done(V value) {
+        SwingUtilities.invokeLater(exit);
+      }
+
+      @Override
+      public void failed(Throwable cause) {
+        SwingUtilities.invokeLater(exit);
+      }
+    }, DIRECT_EXECUTOR);
+    Timer timer = null;
+    if (timeout >= 0) {
+      timer = new Timer((int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout)), new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          exit.run();
+        }
+      });
+      timer.setRepeats(false);
+      timer.start();
+    }
+    loop.enter();
+    if (timer != null) {
+      timer.stop();
+    }
+    return future.isDone();
+  }
 }
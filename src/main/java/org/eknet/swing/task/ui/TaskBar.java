@@ -34,8 +34,9 @@ import javax.swing.SwingConstants;
 import org.eknet.swing.task.ChangeEvent;
 import org.eknet.swing.task.Mode;
 import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskBatchListener;
+import org.eknet.swing.task.TaskChanges;
 import org.eknet.swing.task.TaskEvent;
-import org.eknet.swing.task.TaskListener;
 import org.eknet.swing.task.TaskManager;
 import org.eknet.swing.task.TaskPredicate;
 import org.eknet.swing.task.TaskPredicates;
@@ -59,7 +60,7 @@ public class TaskBar extends JPanel {
 
   private final TaskManager taskManager;
 
-  private final TaskListener updateListener = new UpdateListener();
+  private final TaskBatchListener updateListener = new UpdateListener();
   private final MouseListener taskListActivator = new TaskListMouseListener();
 
   private TaskPredicate filter = TaskPredicates.backgroundTasks;
@@ -83,7 +84,7 @@ public class TaskBar extends JPanel {
     progressBar.addMouseListener(taskListActivator);
     taskLabel.addMouseListener(taskListActivator);
 
-    taskManager.getTaskListenerSupport().addListener(updateListener);
+    taskManager.getTaskListenerSupport().addBatchListener(updateListener);
   }
 
   public TaskPredicate getFilter() {
@@ -128,7 +129,7 @@ public class TaskBar extends JPanel {
   }
 
 
-  private class UpdateListener implements TaskListener {
+  private class UpdateListener implements TaskBatchListener {
     private String currentProgress;
 
     private void updateLabel(Integer backgroundTasks, Integer pendingTasks, String phase) {
@@ -152,46 +153,59 @@ public class TaskBar extends JPanel {
     }
 
     @Override
-    public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
-      Util.checkNotNullArgument(event);
-      if (!isBackground(event)) {
-        return;
-      }
-      if (event.getNewValue() != null) {
-        State state = event.getNewValue();
-        int count = getBackgroundTaskCount();
-        updateLabel(count, null, event.getSource().getPhase());
-
-        if (count > 0 && state == State.STARTED) {
-          //new task came in
-          if (currentProgress == null) {
-            currentProgress = event.getSource().getContextId();
+    public void tasksChanged(/*@NotNull*/ TaskChanges changes) {
+      Util.checkNotNullArgument(changes);
+      Integer count = null;
+      String phase = null;
+      boolean stateChanged = false;
+      for (ChangeEvent<State> event : changes.getStateChanges()) {
+        if (isBackground(event) && event.getNewValue() != null) {
+          if (count == null) {
+            count = getBackgroundTaskCount();
           }
-          progressBar.setIndeterminate(true);
+          stateChanged(event.getNewValue(), event.getSource().getContextId(), count);
+          phase = event.getSource().getPhase();
+          stateChanged = true;
         }
-        //noinspection ConstantConditions
-        if (count > 0 && state.isFinalState()) {
-          //some task finished, more to do
-          currentProgress = null;
-          progressBar.setIndeterminate(true);
+      }
+      for (ChangeEvent<Integer> event : changes.getProgressChanges()) {
+        if (isBackground(event)) {
+          progressChanged(event);
         }
-        //noinspection ConstantConditions
-        if (count == 0 && state.isFinalState()) {
-          //last task finished
-          currentProgress = null;
-          progressBar.setValue(0);
-          progressBar.setIndeterminate(false);
-          progressBar.setToolTipText(null);
+      }
+      for (ChangeEvent<String> event : changes.getPhaseChanges()) {
+        if (isBackground(event) && event.getNewValue() != null) {
+          phase = event.getNewValue();
         }
       }
+      if (stateChanged || phase != null) {
+        updateLabel(count, null, phase);
+      }
     }
 
-    @Override
-    public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
-      Util.checkNotNullArgument(event);
-      if (!isBackground(event)) {
-        return;
+    private void stateChanged(State state, String contextId, int count) {
+      if (count > 0 && state != State.PENDING && !state.isFinalState()) {
+        //new task came in; batched changes may collapse started into a later state
+        if (currentProgress == null) {
+          currentProgress = contextId;
+        }
+        progressBar.setIndeterminate(true);
+      }
+      if (count > 0 && state.isFinalState()) {
+        //some task finished, more to do
+        currentProgress = null;
+        progressBar.setIndeterminate(true);
       }
+      if (count == 0 && state.isFinalState()) {
+        //last task finished
+        currentProgress = null;
+        progressBar.setValue(0);
+        progressBar.setIndeterminate(false);
+        progressBar.setToolTipText(null);
+      }
+    }
+
+    private void progressChanged(ChangeEvent<Integer> event) {
       String id = event.getSource().getContextId();
       Integer value = event.getNewValue();
       if (currentProgress == null) {
@@ -205,18 +219,6 @@ public class TaskBar extends JPanel {
       }
     }
 
-    @Override
-    public void phaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
-      Util.checkNotNullArgument(event);
-      if (!isBackground(event)) {
-        return;
-      }
-      String phase = event.getNewValue();
-      if (phase != null) {
-        updateLabel(null, null, phase);
-      }
-    }
-
     private boolean isBackground(TaskEvent event) {
       return event.getSource().getTask().getMode() == Mode.BACKGROUND;
     }
@@ -182,6 +182,16 @@ public class TaskControlPanel extends JPanel {
             cancelAction.setEnabled(false);
             labelTimer.stop();
             break;
+          case TIMED_OUT:
+            progressBar.setIndeterminate(false);
+            taskLabel.setText(taskId + " timed out.");
+            cancelAction.setEnabled(false);
+            labelTimer.stop();
+            break;
+          case RETRYING:
+            taskLabel.setText(taskId + " retrying (attempt " + taskControl.getContext().getAttempt() + ").");
+            progressBar.setIndeterminate(true);
+            break;
           case FAILED:
             progressBar.setIndeterminate(false);
             taskLabel.setText(taskId + " failed");
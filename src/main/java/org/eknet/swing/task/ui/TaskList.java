@@ -34,8 +34,9 @@ import javax.swing.SwingUtilities;
 
 import org.eknet.swing.task.ChangeEvent;
 import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskBatchListener;
+import org.eknet.swing.task.TaskChanges;
 import org.eknet.swing.task.TaskControl;
-import org.eknet.swing.task.TaskListenerAdapter;
 import org.eknet.swing.task.TaskManager;
 import org.eknet.swing.task.TaskPredicate;
 import org.eknet.swing.task.TaskPredicates;
@@ -82,7 +83,7 @@ public class TaskList extends JPanel {
         addTask(ctrl);
       }
       //add listener to pickup
-      taskManager.getTaskListenerSupport().addListener(listener);
+      taskManager.getTaskListenerSupport().addBatchListener(listener);
       running = true;
     }
   }
@@ -150,7 +151,7 @@ public class TaskList extends JPanel {
 
   public synchronized void stop() {
     if (running) {
-      taskManager.getTaskListenerSupport().removeListener(listener);
+      taskManager.getTaskListenerSupport().removeBatchListener(listener);
       synchronized (controls) {
         controls.clear();
       }
@@ -192,19 +193,22 @@ public class TaskList extends JPanel {
     });
   }
 
-  private class ControlListener extends TaskListenerAdapter {
+  private class ControlListener implements TaskBatchListener {
     @Override
-    public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
-      Util.checkNotNullArgument(event);
-      State state = event.getNewValue();
-      String contextId = event.getSource().getContextId();
-      if (state != null) {
-        TaskControl tc = taskManager.getTask(contextId);
-        if (tc != null && state == State.PENDING && filter.apply(tc)) {
-          addTask(tc);
-        }
-        if (state.isFinalState()) {
-          removeTask(contextId);
+    public void tasksChanged(/*@NotNull*/ TaskChanges changes) {
+      Util.checkNotNullArgument(changes);
+      for (ChangeEvent<State> event : changes.getStateChanges()) {
+        State state = event.getNewValue();
+        String contextId = event.getSource().getContextId();
+        if (state != null) {
+          TaskControl<?> tc = taskManager.getTask(contextId);
+          //a pending state may be merged with the following ones
+          if (tc != null && !state.isFinalState() && filter.apply(tc)) {
+            addTask(tc);
+          }
+          if (state.isFinalState()) {
+            removeTask(contextId);
+          }
         }
       }
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskScope;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:05
+ */
+public class AbstractTrackerTest {
+
+  @Test
+  public void testSplitProgressEndsAtFullConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 20; round++) {
+        final RecordingTracker tracker = new RecordingTracker();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 4; i++) {
+          final Tracker<Object> sub = tracker.split(1 + i);
+          futures.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                start.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              for (int p = 0; p <= 100; p += 10) {
+                sub.setProgress(p);
+              }
+            }
+          }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get();
+        }
+        Assert.assertEquals(tracker.last, AbstractTracker.SCALE);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testNestedSplitsAndRanges() {
+    RecordingTracker tracker = new RecordingTracker();
+    Tracker<Object> first = tracker.split(1);
+    Tracker<Object> second = tracker.split(3);
+    first.setProgress(0L, 10000000000L, 5000000000L);
+    Assert.assertEquals(tracker.last, AbstractTracker.SCALE / 8);
+    Tracker<Object> nested = second.split(1);
+    second.split(1).setProgress(100);
+    nested.setProgress(50);
+    Assert.assertEquals(tracker.last, AbstractTracker.SCALE / 8 + AbstractTracker.SCALE * 3 / 4 * 3 / 4);
+    first.setProgress(100);
+    nested.setProgress(100);
+    Assert.assertEquals(tracker.last, AbstractTracker.SCALE);
+  }
+
+  @Test
+  public void testTaskProgressOfSplitWork() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setMaxUpdateRate(0);
+    TaskControl<Integer> control = manager.create(new AbstractTask<Integer, Object>("split") {
+      @Override
+      public Integer execute(Tracker<Object> tracker) throws Exception {
+        TaskScope<Object> scope = tracker.newScope();
+        for (int i = 0; i < 8; i++) {
+          scope.fork(new AbstractTask<Integer, Object>("part") {
+            @Override
+            public Integer execute(Tracker<Object> tracker) throws Exception {
+              for (int p = 0; p <= 100; p++) {
+                tracker.setProgress(p);
+              }
+              return 1;
+            }
+          });
+        }
+        scope.join();
+        return 8;
+      }
+    });
+    Assert.assertEquals(control.waitFor(), Integer.valueOf(8));
+    Assert.assertEquals(control.getContext().getProgress(), 100);
+    manager.shutdown();
+  }
+
+  private static class RecordingTracker extends AbstractTracker<Object> {
+    private volatile long last = -1;
+
+    @Override
+    protected void setScaledProgress(long progress) {
+      //make concurrent updates overlap while publishing
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      last = progress;
+    }
+
+    @Override
+    public void setProgress(int progress) {
+      setScaledProgress(progress * (SCALE / 100));
+    }
+
+    @Override
+    public void setPhase(String phase) {
+    }
+
+    @Override
+    public void publish(Object... chunks) {
+    }
+
+    @Override
+    Executor getScopeExecutor() {
+      return null;
+    }
+
+    @Override
+    void bindScope(TaskScope<?> scope) {
+    }
+  }
+}
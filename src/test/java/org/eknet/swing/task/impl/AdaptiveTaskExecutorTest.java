@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.eknet.swing.task.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:55
+ */
+public class AdaptiveTaskExecutorTest {
+
+  private final int processors = Runtime.getRuntime().availableProcessors();
+  private final int maxPoolSize = 4 * processors + 4;
+
+  @Test
+  public void testBlockingWorkGrowsPool() throws Exception {
+    AdaptiveTaskExecutor executor = new AdaptiveTaskExecutor(1, maxPoolSize, Executors.defaultThreadFactory());
+    int maxCore = runBlocking(executor);
+    Assert.assertEquals(executor.getTargetPoolSize(), maxPoolSize);
+    Assert.assertTrue(maxCore > 1, "pool did not grow");
+    Assert.assertTrue(maxCore <= maxPoolSize, "pool grew beyond maximum: " + maxCore);
+    Assert.assertEquals(executor.getCorePoolSize(), 1);
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCpuBoundWorkShrinksTarget() throws Exception {
+    AdaptiveTaskExecutor executor = new AdaptiveTaskExecutor(1, maxPoolSize, Executors.defaultThreadFactory());
+    runBlocking(executor);
+    Assert.assertEquals(executor.getTargetPoolSize(), maxPoolSize);
+
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    for (int i = 0; i < 30; i++) {
+      Future<?> future = executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          spin(bean, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+      });
+      future.get(5, TimeUnit.SECONDS);
+    }
+    if (bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled()) {
+      int target = executor.getTargetPoolSize();
+      Assert.assertTrue(target < maxPoolSize, "target did not shrink: " + target);
+      Assert.assertTrue(target >= executor.getMinimumPoolSize(), "target below minimum: " + target);
+    } else {
+      //without cpu time, the maximum is always used
+      Assert.assertEquals(executor.getTargetPoolSize(), maxPoolSize);
+    }
+    Assert.assertEquals(executor.getCorePoolSize(), 1);
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Runs rounds of sleeping tasks and returns the largest core pool size seen.
+   */
+  private int runBlocking(AdaptiveTaskExecutor executor) throws Exception {
+    int maxCore = 0;
+    for (int round = 0; round < 3; round++) {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < 2 * maxPoolSize; i++) {
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Thread.sleep(20);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }));
+        maxCore = Math.max(maxCore, executor.getCorePoolSize());
+      }
+      for (Future<?> future : futures) {
+        future.get(5, TimeUnit.SECONDS);
+      }
+    }
+    return maxCore;
+  }
+
+  private static void spin(ThreadMXBean bean, long nanos) {
+    boolean cpu = bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled();
+    long start = cpu ? bean.getCurrentThreadCpuTime() : System.nanoTime();
+    while ((cpu ? bean.getCurrentThreadCpuTime() : System.nanoTime()) - start < nanos) {
+      //busy
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.Delivery;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:40
+ */
+public class AsyncListenerDispatcherTest {
+
+  @Test
+  public void testDropsOnlyDroppableNotifications() throws Exception {
+    AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 2);
+    final List<String> run = Collections.synchronizedList(new ArrayList<String>());
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    dispatcher.execute("task", new Runnable() {
+      @Override
+      public void run() {
+        blocked.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 10; i++) {
+      dispatcher.execute("task", new Recording(run, "progress" + i), true);
+    }
+    dispatcher.execute("task", new Recording(run, "state1"), false);
+    dispatcher.execute("task", new Recording(run, "state2"), false);
+    dispatcher.execute("task", new Recording(run, "state3"), false);
+    release.countDown();
+
+    final CountDownLatch drained = new CountDownLatch(1);
+    dispatcher.execute("task", new Runnable() {
+      @Override
+      public void run() {
+        drained.countDown();
+      }
+    });
+    Assert.assertTrue(drained.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(run, (Object) Arrays.asList("progress0", "progress1", "state1", "state2", "state3"));
+    Assert.assertEquals(dispatcher.getDroppedCount(), 8L);
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testRunsOnCallerAfterShutdown() throws Exception {
+    AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 1);
+    dispatcher.shutdown();
+    final List<String> run = Collections.synchronizedList(new ArrayList<String>());
+    dispatcher.execute("task", new Recording(run, "state"));
+    Assert.assertEquals(run, (Object) Collections.singletonList("state"));
+  }
+
+  @Test
+  public void testSlowListenerReceivesFinalState() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setMaxUpdateRate(0);
+    AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 1);
+    ((TaskListenerSupportImpl) manager.getTaskListenerSupport()).setDispatcher(dispatcher);
+    final CountDownLatch done = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    manager.getTaskListenerSupport().addListener(new TaskListenerAdapter() {
+      @Override
+      public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+        if (event.getNewValue() == State.DONE) {
+          done.countDown();
+        }
+      }
+
+      @Override
+      public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, Delivery.ASYNC);
+    TaskControl<Integer> control = manager.create(new AbstractTask<Integer, Object>("busy") {
+      @Override
+      public Integer execute(Tracker<Object> tracker) throws Exception {
+        for (int p = 0; p <= 100; p += 10) {
+          tracker.setProgress(p);
+          Thread.sleep(20);
+        }
+        return 100;
+      }
+    });
+    Assert.assertEquals(control.waitFor(), Integer.valueOf(100));
+    //let the final state arrive while the listener is still stuck at the first progress
+    Thread.sleep(200);
+    release.countDown();
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS), "final state has been dropped");
+    Assert.assertTrue(dispatcher.getDroppedCount() > 0);
+    manager.shutdown();
+  }
+
+  private static class Recording implements Runnable {
+    private final List<String> run;
+    private final String name;
+
+    private Recording(List<String> run, String name) {
+      this.run = run;
+      this.name = name;
+    }
+
+    @Override
+    public void run() {
+      run.add(name);
+    }
+  }
+}
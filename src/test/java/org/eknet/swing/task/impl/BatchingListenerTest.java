@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskBatchListener;
+import org.eknet.swing.task.TaskChanges;
+import org.eknet.swing.task.TaskContext;
+import org.eknet.swing.task.TaskListener;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 23:40
+ */
+public class BatchingListenerTest {
+
+  @Test
+  public void testMergesEventsOfOneCycle() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final TaskContext first = manager.create(new IdTask("first")).getContext();
+    final TaskContext second = manager.create(new IdTask("second")).getContext();
+    final List<TaskChanges> batches = new ArrayList<TaskChanges>();
+    final BatchingListener listener = newListener(batches);
+
+    //events fired during one EDT cycle are delivered after it
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        listener.stateChanged(new ChangeEventImpl<State>(State.PENDING, State.STARTED, first));
+        listener.progressChanged(new ChangeEventImpl<Integer>(0, 10, first));
+        listener.stateChanged(new ChangeEventImpl<State>(null, State.PENDING, second));
+        listener.progressChanged(new ChangeEventImpl<Integer>(10, 50, first));
+        listener.stateChanged(new ChangeEventImpl<State>(State.STARTED, State.DONE, first));
+        Assert.assertTrue(batches.isEmpty());
+      }
+    });
+    flushEdt();
+
+    Assert.assertEquals(batches.size(), 1);
+    TaskChanges changes = batches.get(0);
+    Assert.assertEquals(changes.getEventCount(), 5);
+    List<ChangeEvent<State>> states = changes.getStateChanges();
+    Assert.assertEquals(states.size(), 2);
+    //the intermediate started state is collapsed
+    assertChange(states.get(0), first, State.PENDING, State.DONE);
+    assertChange(states.get(1), second, null, State.PENDING);
+    Assert.assertEquals(changes.getProgressChanges().size(), 1);
+    assertChange(changes.getProgressChanges().get(0), first, 0, 50);
+    Assert.assertTrue(changes.getPhaseChanges().isEmpty());
+    manager.shutdown();
+  }
+
+  @Test
+  public void testDeliversOncePerCycle() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final TaskContext context = manager.create(new IdTask("task")).getContext();
+    final List<TaskChanges> batches = new ArrayList<TaskChanges>();
+    final BatchingListener listener = newListener(batches);
+
+    for (int i = 0; i < 3; i++) {
+      final int cycle = i;
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+          listener.phaseChanged(new ChangeEventImpl<String>("phase " + cycle, "phase " + (cycle + 1), context));
+          listener.phaseChanged(new ChangeEventImpl<String>("phase " + (cycle + 1), "phase " + (cycle + 2), context));
+        }
+      });
+      flushEdt();
+      Assert.assertEquals(batches.size(), cycle + 1);
+      TaskChanges changes = batches.get(cycle);
+      Assert.assertEquals(changes.getEventCount(), 2);
+      assertChange(changes.getPhaseChanges().get(0), context, "phase " + cycle, "phase " + (cycle + 2));
+    }
+    //nothing is delivered without events
+    flushEdt();
+    Assert.assertEquals(batches.size(), 3);
+    manager.shutdown();
+  }
+
+  private static BatchingListener newListener(final List<TaskChanges> batches) {
+    return new BatchingListener(new TaskBatchListener() {
+      @Override
+      public void tasksChanged(/*@NotNull*/ TaskChanges changes) {
+        batches.add(changes);
+      }
+    }, new LoggingExceptionHandler<TaskListener>(LoggerFactory.getLogger(BatchingListenerTest.class)));
+  }
+
+  private static <T> void assertChange(ChangeEvent<T> event, TaskContext source, T oldValue, T newValue) {
+    Assert.assertSame(event.getSource(), source);
+    Assert.assertEquals(event.getOldValue(), oldValue);
+    Assert.assertEquals(event.getNewValue(), newValue);
+  }
+
+  private static void flushEdt() throws Exception {
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+
+  private static class IdTask extends AbstractTask<String, Object> {
+    private IdTask(String id) {
+      super(id);
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      return getId();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:30
+ */
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void testRunsInSubmissionOrder() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    try {
+      ConcurrencyLimiter limiter = new ConcurrencyLimiter(pool);
+      List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+      List<TaskWorker<String, Object>> workers = new ArrayList<TaskWorker<String, Object>>();
+      for (int i = 0; i < 5; i++) {
+        TaskWorker<String, Object> worker = new TaskWorker<String, Object>(new RecordingTask("t" + i, runs, null));
+        workers.add(worker);
+        limiter.execute("key", 1, worker);
+      }
+      for (TaskWorker<String, Object> worker : workers) {
+        worker.get(5, TimeUnit.SECONDS);
+      }
+      Assert.assertEquals(runs, (Object) Arrays.asList("t0", "t1", "t2", "t3", "t4"));
+      Assert.assertEquals(limiter.getWaitingCount("key"), 0);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCancelledWorkersAreNotCounted() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    try {
+      ConcurrencyLimiter limiter = new ConcurrencyLimiter(pool);
+      List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+      CountDownLatch release = new CountDownLatch(1);
+      TaskWorker<String, Object> first = new TaskWorker<String, Object>(new RecordingTask("first", runs, release));
+      TaskWorker<String, Object> second = new TaskWorker<String, Object>(new RecordingTask("second", runs, null));
+      TaskWorker<String, Object> third = new TaskWorker<String, Object>(new RecordingTask("third", runs, null));
+      limiter.execute("key", 1, first);
+      limiter.execute("key", 1, second);
+      limiter.execute("key", 1, third);
+      Assert.assertEquals(limiter.getRunningCount("key"), 1);
+      Assert.assertEquals(limiter.getWaitingCount("key"), 2);
+
+      second.cancel(true);
+      Assert.assertEquals(limiter.getWaitingCount("key"), 1);
+      Assert.assertEquals(limiter.getWaitingCounts(), (Object) Collections.singletonMap("key", 1));
+
+      release.countDown();
+      Assert.assertEquals(third.get(5, TimeUnit.SECONDS), "third");
+      long deadline = System.currentTimeMillis() + 5000;
+      while (limiter.getRunningCount("key") > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(limiter.getRunningCount("key"), 0);
+      Assert.assertEquals(limiter.getWaitingCount("key"), 0);
+      Assert.assertTrue(limiter.getWaitingCounts().isEmpty());
+      Assert.assertEquals(runs, (Object) Arrays.asList("first", "third"));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static class RecordingTask extends AbstractTask<String, Object> {
+    private final List<String> runs;
+    private final CountDownLatch latch;
+
+    private RecordingTask(String id, List<String> runs, CountDownLatch latch) {
+      super(id);
+      this.runs = runs;
+      this.latch = latch;
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      runs.add(getId());
+      if (latch != null) {
+        latch.await(5, TimeUnit.SECONDS);
+      }
+      return getId();
+    }
+  }
+}
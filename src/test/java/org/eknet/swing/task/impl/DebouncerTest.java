@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:40
+ */
+public class DebouncerTest {
+
+  @Test
+  public void testSubmitAfterSchedulerShutdown() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    Debouncer debouncer = new Debouncer(manager, scheduler);
+    scheduler.shutdown();
+
+    assertCancelled(debouncer.submit(new IdTask("search"), 10, TimeUnit.MILLISECONDS));
+    //a rejected submission must not leave an entry behind
+    assertCancelled(debouncer.submit(new IdTask("search"), 10, TimeUnit.MILLISECONDS));
+    debouncer.cancelPending();
+    manager.shutdown();
+  }
+
+  private static void assertCancelled(TaskControl<?> control) throws Exception {
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("task " + control.getContext().getContextId() + " has not been cancelled");
+    } catch (CancellationException e) {
+      //expected
+    }
+  }
+
+  private static class IdTask extends AbstractTask<String, Object> {
+    private IdTask(String id) {
+      super(id);
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      return getId();
+    }
+  }
+}
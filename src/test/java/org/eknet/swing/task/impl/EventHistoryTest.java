@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.TaskContext;
+import org.eknet.swing.task.TaskListenerAdapter;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:10
+ */
+public class EventHistoryTest {
+
+  @Test
+  public void testReplayFromOldestEvent() {
+    EventHistory history = new EventHistory(new TaskListenerSupportImpl());
+    history.setCapacity(4);
+    for (int i = 1; i <= 6; i++) {
+      history.progressChanged(new Progress(i));
+    }
+    Assert.assertEquals(history.getOldestSequence(), 3L);
+    Assert.assertEquals(history.getLatestSequence(), 6L);
+
+    Recorder recorder = new Recorder();
+    Assert.assertEquals(history.subscribe(1, recorder), 3L);
+    Assert.assertEquals(recorder.values, (Object) Arrays.asList(3, 4, 5, 6));
+
+    history.progressChanged(new Progress(7));
+    Assert.assertEquals(recorder.values, (Object) Arrays.asList(3, 4, 5, 6, 7));
+
+    history.unsubscribe(recorder);
+    history.progressChanged(new Progress(8));
+    Assert.assertEquals(recorder.values.size(), 5);
+  }
+
+  @Test
+  public void testOnlyNewEvents() {
+    EventHistory history = new EventHistory(new TaskListenerSupportImpl());
+    history.setCapacity(4);
+    history.progressChanged(new Progress(1));
+    Recorder recorder = new Recorder();
+    history.subscribe(history.getLatestSequence() + 1, recorder);
+    Assert.assertTrue(recorder.values.isEmpty());
+    history.progressChanged(new Progress(2));
+    Assert.assertEquals(recorder.values, (Object) Collections.singletonList(2));
+  }
+
+  @Test
+  public void testLateSubscriberWhileFiring() throws Exception {
+    final int count = 20000;
+    final EventHistory history = new EventHistory(new TaskListenerSupportImpl());
+    history.setCapacity(count);
+    final CountDownLatch halfway = new CountDownLatch(1);
+    Thread firing = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 1; i <= count; i++) {
+          history.progressChanged(new Progress(i));
+          if (i == count / 2) {
+            halfway.countDown();
+          }
+        }
+      }
+    });
+    firing.start();
+    Assert.assertTrue(halfway.await(5, TimeUnit.SECONDS));
+    Recorder recorder = new Recorder();
+    long first = history.subscribe(1, recorder);
+    firing.join(5000);
+
+    Assert.assertEquals(first, 1L);
+    Assert.assertEquals(recorder.values.size(), count);
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals(recorder.values.get(i), (Object) (i + 1));
+    }
+  }
+
+  @Test
+  public void testDisabledHistoryRejectsSubscribers() {
+    EventHistory history = new EventHistory(new TaskListenerSupportImpl());
+    try {
+      history.subscribe(1, new Recorder());
+      Assert.fail("subscribed to a disabled history");
+    } catch (IllegalStateException e) {
+      //expected
+    }
+  }
+
+  private static class Recorder extends TaskListenerAdapter {
+    private final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+
+    @Override
+    public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+      values.add(event.getNewValue());
+    }
+  }
+
+  private static class Progress implements ChangeEvent<Integer> {
+    private final int value;
+
+    private Progress(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer getOldValue() {
+      return value - 1;
+    }
+
+    @Override
+    public Integer getNewValue() {
+      return value;
+    }
+
+    @Override
+    public TaskContext getSource() {
+      return null;
+    }
+  }
+}
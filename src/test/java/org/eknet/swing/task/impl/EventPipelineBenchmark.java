@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.Mode;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * Measures the cost of a progress and phase update from within a task, with
+ * nobody listening and with a listener on the task. Updates are not throttled,
+ * so every update goes through the whole event pipeline if observed.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 15:40
+ */
+public class EventPipelineBenchmark {
+
+  private static final int UPDATES = 2000000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setMaxUpdateRate(0);
+    for (int round = 1; round <= ROUNDS; round++) {
+      long unobserved = run(manager, false);
+      long observed = run(manager, true);
+      System.out.println("round " + round + ": "
+          + format(unobserved) + " ns/update without listeners, "
+          + format(observed) + " ns/update with listener");
+    }
+    manager.shutdown();
+  }
+
+  private static String format(long nanos) {
+    return String.format("%.1f", (double) nanos / UPDATES);
+  }
+
+  private static long run(TaskManagerImpl manager, boolean observed) throws Exception {
+    TaskControl<Long> control = manager.create(new UpdatingTask());
+    if (observed) {
+      control.getContext().addListener(new TaskListenerAdapter() {
+        private int count;
+
+        @Override
+        public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+          count++;
+        }
+
+        @Override
+        public void phaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
+          count++;
+        }
+      });
+    }
+    return control.waitFor();
+  }
+
+  private static class UpdatingTask extends AbstractTask<Long, Object> {
+    private static final String[] PHASES = { "reading", "parsing", "writing" };
+
+    private UpdatingTask() {
+      super("benchmark", Mode.BACKGROUND);
+    }
+
+    @Override
+    public Long execute(Tracker<Object> tracker) throws Exception {
+      long start = System.nanoTime();
+      for (int i = 0; i < UPDATES; i++) {
+        tracker.setProgress(i % 101);
+        tracker.setPhase(PHASES[i % PHASES.length]);
+      }
+      return System.nanoTime() - start;
+    }
+  }
+}
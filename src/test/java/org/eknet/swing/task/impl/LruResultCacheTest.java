@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.Cacheable;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 23:10
+ */
+public class LruResultCacheTest {
+
+  @Test
+  public void testExpiry() throws Exception {
+    LruResultCache cache = new LruResultCache(10, 50, TimeUnit.MILLISECONDS);
+    cache.put("a", "1");
+    Assert.assertEquals(cache.get("a"), "1");
+    Thread.sleep(100);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(cache.size(), 0);
+    Assert.assertEquals(cache.getHitCount(), 1L);
+    Assert.assertEquals(cache.getMissCount(), 1L);
+    Assert.assertEquals(cache.getEvictionCount(), 0L);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    LruResultCache cache = new LruResultCache(2, 1, TimeUnit.HOURS);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    Assert.assertEquals(cache.get("a"), "1");
+    cache.put("c", "3");
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(cache.get("a"), "1");
+    Assert.assertEquals(cache.get("c"), "3");
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.getEvictionCount(), 1L);
+    Assert.assertEquals(cache.getHitCount(), 3L);
+    Assert.assertEquals(cache.getMissCount(), 1L);
+  }
+
+  @Test
+  public void testEvictsByWeight() throws Exception {
+    LruResultCache.Weigher weigher = new LruResultCache.Weigher() {
+      @Override
+      public int weigh(/*@NotNull*/ String key, /*@NotNull*/ Object value) {
+        return value.toString().length();
+      }
+    };
+    LruResultCache cache = new LruResultCache(10, 1, TimeUnit.HOURS, 5, weigher);
+    cache.put("a", "xxx");
+    cache.put("b", "xx");
+    Assert.assertEquals(cache.getTotalWeight(), 5L);
+    cache.put("c", "x");
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(cache.get("b"), "xx");
+    Assert.assertEquals(cache.get("c"), "x");
+    Assert.assertEquals(cache.getTotalWeight(), 3L);
+    Assert.assertEquals(cache.getEvictionCount(), 1L);
+
+    //replacing a value updates the weight
+    cache.put("b", "xxxx");
+    Assert.assertEquals(cache.getTotalWeight(), 5L);
+    Assert.assertEquals(cache.size(), 2);
+  }
+
+  @Test
+  public void testCacheHit() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    LruResultCache cache = new LruResultCache(10, 1, TimeUnit.HOURS);
+    manager.setResultCache(cache);
+    AtomicInteger runs = new AtomicInteger();
+    Assert.assertEquals(manager.create(new CachedTask("load", runs)).waitFor(5, TimeUnit.SECONDS), "load");
+    //the result is cached once the task is done on the EDT
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cache.size() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(cache.get("load"), "load");
+
+    TaskControl<String> hit = manager.create(new CachedTask("load", runs));
+    Assert.assertEquals(hit.waitFor(5, TimeUnit.SECONDS), "load");
+    Assert.assertEquals(runs.get(), 1);
+
+    //a hit is tracked like other tasks, so it is cancelled once the manager is shut down
+    TaskControl<String> pending = manager.create(new CachedTask("load", runs));
+    manager.shutdown();
+    pending.execute();
+    try {
+      pending.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("cache hit has been executed after shutdown");
+    } catch (CancellationException e) {
+      //expected
+    }
+    Assert.assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+    Assert.assertEquals(runs.get(), 1);
+  }
+
+  private static class CachedTask extends AbstractTask<String, Object> implements Cacheable {
+    private final AtomicInteger runs;
+
+    private CachedTask(String id, AtomicInteger runs) {
+      super(id);
+      this.runs = runs;
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      runs.incrementAndGet();
+      return getId();
+    }
+
+    @Override
+    public String getCacheKey() {
+      return getId();
+    }
+  }
+}
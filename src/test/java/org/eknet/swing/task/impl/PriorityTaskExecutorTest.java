@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.Mode;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:02
+ */
+public class PriorityTaskExecutorTest {
+
+  private final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+  @Test
+  public void testOrderByModeAndPriority() throws Exception {
+    order.clear();
+    PriorityTaskExecutor executor = new PriorityTaskExecutor(1, Executors.defaultThreadFactory());
+    final CountDownLatch latch = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    executor.execute(worker("background-1", Mode.BACKGROUND, 0));
+    executor.execute(worker("silent", Mode.SILENT, 0));
+    executor.execute(worker("background-2", Mode.BACKGROUND, 0));
+    executor.execute(worker("background-prio", Mode.BACKGROUND, 2));
+    executor.execute(worker("blocking", Mode.BLOCKING, 0));
+    latch.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    Assert.assertEquals(order, Arrays.asList("blocking", "background-prio", "background-1", "background-2", "silent"));
+  }
+
+  @Test
+  public void testExtremePriorities() throws Exception {
+    order.clear();
+    PriorityTaskExecutor executor = new PriorityTaskExecutor(1, Executors.defaultThreadFactory());
+    final CountDownLatch latch = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    executor.execute(worker("min", Mode.BACKGROUND, Integer.MIN_VALUE));
+    executor.execute(worker("normal", Mode.BACKGROUND, 0));
+    executor.execute(worker("max", Mode.BACKGROUND, Integer.MAX_VALUE));
+    latch.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    Assert.assertEquals(order, Arrays.asList("max", "normal", "min"));
+  }
+
+  private TaskWorker<String, String> worker(final String id, Mode mode, int priority) {
+    AbstractTask<String, String> task = new AbstractTask<String, String>(id, mode) {
+      @Override
+      public String execute(Tracker<String> tracker) throws Exception {
+        order.add(getId());
+        return getId();
+      }
+    };
+    task.setPriority(priority);
+    return new TaskWorker<String, String>(task);
+  }
+}
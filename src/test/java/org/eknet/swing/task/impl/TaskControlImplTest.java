@@ -0,0 +1,193 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.RetryPolicy;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:10
+ */
+public class TaskControlImplTest {
+
+  @Test
+  public void testWaitForWhileEdtIsBusy() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final CountDownLatch edtBlocked = new CountDownLatch(1);
+    final CountDownLatch releaseEdt = new CountDownLatch(1);
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        edtBlocked.countDown();
+        try {
+          releaseEdt.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    ExecutorService waiter = Executors.newSingleThreadExecutor();
+    try {
+      Assert.assertTrue(edtBlocked.await(5, TimeUnit.SECONDS));
+      final TaskControl<String> control = manager.create(new ValueTask("value"));
+      Future<String> result = waiter.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return control.waitFor(5, TimeUnit.SECONDS);
+        }
+      });
+      Assert.assertEquals(result.get(5, TimeUnit.SECONDS), "value");
+    } finally {
+      releaseEdt.countDown();
+      waiter.shutdownNow();
+      manager.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWaitForFollowsRetries() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setRetryPolicy(new RetryPolicy(3, 1, 1, TimeUnit.MILLISECONDS));
+    final AtomicInteger runs = new AtomicInteger(0);
+    TaskControl<String> control = manager.create(new AbstractTask<String, Object>("flaky") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        if (runs.incrementAndGet() < 3) {
+          throw new IllegalStateException("attempt " + runs.get());
+        }
+        return "third";
+      }
+    });
+    try {
+      Assert.assertEquals(control.waitFor(5, TimeUnit.SECONDS), "third");
+      Assert.assertEquals(runs.get(), 3);
+    } finally {
+      manager.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWaitForTimeout() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final CountDownLatch release = new CountDownLatch(1);
+    TaskControl<String> control = manager.create(new AbstractTask<String, Object>("slow") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        release.await();
+        return "slow";
+      }
+    });
+    try {
+      control.waitFor(50, TimeUnit.MILLISECONDS);
+      Assert.fail("waitFor did not time out");
+    } catch (TimeoutException e) {
+      //expected
+    } finally {
+      release.countDown();
+      manager.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWaitForOnEdt() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final AtomicBoolean doneOnEdt = new AtomicBoolean(false);
+    final TaskControl<String> control = manager.create(new AbstractTask<String, Object>("value") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        Thread.sleep(50);
+        return getId();
+      }
+
+      @Override
+      public void done(String value) {
+        doneOnEdt.set(SwingUtilities.isEventDispatchThread());
+      }
+    });
+    final AtomicReference<Object> result = new AtomicReference<Object>();
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.set(control.waitFor(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+          result.set(e);
+        }
+      }
+    });
+    Assert.assertEquals(result.get(), "value");
+    //done() is run by the events pumped while waiting
+    Assert.assertTrue(doneOnEdt.get());
+  }
+
+  @Test
+  public void testWaitForTimeoutOnEdt() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final CountDownLatch release = new CountDownLatch(1);
+    final TaskControl<String> control = manager.create(new AbstractTask<String, Object>("slow") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        release.await();
+        return getId();
+      }
+    });
+    final AtomicReference<Object> result = new AtomicReference<Object>();
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.set(control.waitFor(100, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+          result.set(e);
+        }
+      }
+    });
+    release.countDown();
+    Assert.assertTrue(result.get() instanceof TimeoutException, "Unexpected result: " + result.get());
+    Assert.assertEquals(control.waitFor(), "slow");
+  }
+
+  private static class ValueTask extends AbstractTask<String, Object> {
+    private ValueTask(String id) {
+      super(id);
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      return getId();
+    }
+  }
+}
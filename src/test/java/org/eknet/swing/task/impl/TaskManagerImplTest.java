@@ -0,0 +1,467 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.ScheduledTask;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskGraph;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.TaskTimeoutException;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:30
+ */
+public class TaskManagerImplTest {
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setSingleFlight(true);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingTask first = new BlockingTask("load", release);
+    TaskControl<String> control = manager.create(first);
+    control.execute();
+    Assert.assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+    BlockingTask second = new BlockingTask("load", release);
+    Assert.assertSame(manager.create(second), control);
+    control.execute();
+    release.countDown();
+
+    Assert.assertEquals(control.waitFor(), "load");
+    Assert.assertTrue(second.completed.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(second.result.get(), "load");
+    Assert.assertEquals(first.runs.get(), 1);
+    Assert.assertEquals(second.runs.get(), 0);
+
+    awaitState(manager, control, State.DONE);
+    TaskControl<String> next = manager.create(new BlockingTask("load", release));
+    Assert.assertFalse(next == control, "a finished execution must not be shared");
+    Assert.assertEquals(next.waitFor(), "load");
+  }
+
+  @Test
+  public void testFailingCallbackOfSingleFlight() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setSingleFlight(true);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingTask first = new BlockingTask("load", release) {
+      @Override
+      public void done(String value) {
+        super.done(value);
+        throw new IllegalStateException("callback failed");
+      }
+    };
+    TaskControl<String> control = manager.create(first);
+    control.execute();
+    Assert.assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+    BlockingTask second = new BlockingTask("load", release);
+    Assert.assertSame(manager.create(second), control);
+    release.countDown();
+
+    Assert.assertTrue(second.completed.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(second.result.get(), "load");
+    Assert.assertEquals(first.result.get(), "load");
+    awaitState(manager, control, State.DONE);
+  }
+
+  @Test
+  public void testThreadPerTask() throws Exception {
+    TaskManagerImpl manager = TaskManagerImpl.createThreadPerTaskManager();
+    final int count = 8;
+    final CountDownLatch started = new CountDownLatch(count);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    List<TaskControl<String>> controls = new ArrayList<TaskControl<String>>();
+    for (int i = 0; i < count; i++) {
+      TaskControl<String> control = manager.create(new AbstractTask<String, Object>("io" + i) {
+        @Override
+        public String execute(Tracker<Object> tracker) throws Exception {
+          threads.add(Thread.currentThread());
+          started.countDown();
+          release.await();
+          return getId();
+        }
+      });
+      control.execute();
+      controls.add(control);
+    }
+    //all tasks are running at the same time
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    release.countDown();
+    for (TaskControl<String> control : controls) {
+      control.waitFor(5, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(threads.size(), count);
+    manager.shutdown();
+    Assert.assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    BlockingTask task = new BlockingTask("slow", new CountDownLatch(1));
+    task.setTimeout(100);
+    TaskControl<String> control = manager.create(task);
+    control.execute();
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("task did not time out");
+    } catch (TaskTimeoutException e) {
+      Assert.assertEquals(e.getTimeout(), 100L);
+    }
+    Assert.assertTrue(task.completed.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(task.result.get() instanceof TaskTimeoutException);
+    awaitState(manager, control, State.TIMED_OUT);
+    Assert.assertEquals(control.getContext().getState(), State.TIMED_OUT);
+  }
+
+  @Test
+  public void testTimeoutOfExecute() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    TaskControl<String> slow = manager.create(new BlockingTask("slow", new CountDownLatch(1)));
+    slow.execute(100, TimeUnit.MILLISECONDS);
+    TaskControl<String> fast = manager.create(new BlockingTask("fast", null));
+    fast.execute(5, TimeUnit.SECONDS);
+
+    Assert.assertEquals(fast.getFuture().get(5, TimeUnit.SECONDS), "fast");
+    awaitState(manager, slow, State.TIMED_OUT);
+    Assert.assertEquals(fast.getContext().getState(), State.DONE);
+  }
+
+  @Test
+  public void testTimeoutStartsWithExecution() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingTask busy = new BlockingTask("busy", release);
+    busy.setLane("lane");
+    manager.create(busy).execute();
+    Assert.assertTrue(busy.started.await(5, TimeUnit.SECONDS));
+
+    BlockingTask queued = new BlockingTask("queued", null);
+    queued.setLane("lane");
+    queued.setTimeout(100);
+    TaskControl<String> control = manager.create(queued);
+    control.execute();
+    //waiting for the lane does not count against the timeout
+    Thread.sleep(300);
+    release.countDown();
+    Assert.assertEquals(control.getFuture().get(5, TimeUnit.SECONDS), "queued");
+    manager.shutdown();
+  }
+
+  @Test
+  public void testLanes() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    List<TaskControl<String>> controls = new ArrayList<TaskControl<String>>();
+    for (int i = 0; i < 4; i++) {
+      AbstractTask<String, Object> task = new AbstractTask<String, Object>("db" + i) {
+        @Override
+        public String execute(Tracker<Object> tracker) throws Exception {
+          int now = active.incrementAndGet();
+          if (now > maxActive.get()) {
+            maxActive.set(now);
+          }
+          order.add(getId());
+          Thread.sleep(20);
+          active.decrementAndGet();
+          return getId();
+        }
+      };
+      task.setLane("db");
+      TaskControl<String> control = manager.create(task);
+      control.execute();
+      controls.add(control);
+    }
+    for (TaskControl<String> control : controls) {
+      control.waitFor(5, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(maxActive.get(), 1);
+    Assert.assertEquals(order, (Object) Arrays.asList("db0", "db1", "db2", "db3"));
+
+    //a busy lane does not hold up other lanes
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingTask blocking = new BlockingTask("blocking", release);
+    blocking.setLane("a");
+    manager.create(blocking).execute();
+    BlockingTask other = new BlockingTask("other", null);
+    other.setLane("b");
+    TaskControl<String> otherControl = manager.create(other);
+    otherControl.execute();
+    Assert.assertEquals(otherControl.waitFor(5, TimeUnit.SECONDS), "other");
+    release.countDown();
+    manager.shutdown();
+  }
+
+  @Test
+  public void testDebounce() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    List<BlockingTask> tasks = new ArrayList<BlockingTask>();
+    List<TaskControl<String>> controls = new ArrayList<TaskControl<String>>();
+    for (int i = 0; i < 3; i++) {
+      BlockingTask task = new BlockingTask("search", null);
+      tasks.add(task);
+      controls.add(manager.createDebounced(task, 200, TimeUnit.MILLISECONDS));
+      Thread.sleep(20);
+    }
+    Assert.assertEquals(controls.get(2).getFuture().get(5, TimeUnit.SECONDS), "search");
+    for (int i = 0; i < 2; i++) {
+      assertCancelled(controls.get(i));
+      Assert.assertEquals(tasks.get(i).runs.get(), 0);
+    }
+    Assert.assertEquals(tasks.get(2).runs.get(), 1);
+
+    //a newer submission also cancels a running task
+    BlockingTask running = new BlockingTask("filter", new CountDownLatch(1));
+    TaskControl<String> runningControl = manager.createDebounced(running, 10, TimeUnit.MILLISECONDS);
+    Assert.assertTrue(running.started.await(5, TimeUnit.SECONDS));
+    TaskControl<String> latest = manager.createDebounced(new BlockingTask("filter", null), 10, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(latest.getFuture().get(5, TimeUnit.SECONDS), "filter");
+    assertCancelled(runningControl);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testSchedule() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    BlockingTask task = new BlockingTask("later", null);
+    long start = System.nanoTime();
+    TaskControl<String> control = manager.schedule(task, 150, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(control.getContext().getState(), State.PENDING);
+    Assert.assertEquals(control.getFuture().get(5, TimeUnit.SECONDS), "later");
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue(elapsed >= 140, "started too early: " + elapsed + "ms");
+    Assert.assertEquals(task.runs.get(), 1);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testScheduleWithFixedDelay() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    BlockingTask task = new BlockingTask("poll", null);
+    ScheduledTask<String> scheduled = manager.scheduleWithFixedDelay(task, 0, 30, TimeUnit.MILLISECONDS);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (scheduled.getRunCount() < 3 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(scheduled.getRunCount() >= 3);
+    scheduled.cancel();
+    Assert.assertTrue(scheduled.isCancelled());
+    scheduled.getLastRun().getFuture().get(5, TimeUnit.SECONDS);
+    int runs = scheduled.getRunCount();
+    Thread.sleep(150);
+    Assert.assertEquals(scheduled.getRunCount(), runs);
+    Assert.assertEquals(task.runs.get(), runs);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testScheduleAtFixedRateSkipsOverlappingRuns() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    ScheduledTask<String> scheduled = manager.scheduleAtFixedRate(new AbstractTask<String, Object>("sync") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        if (active.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        Thread.sleep(100);
+        active.decrementAndGet();
+        return getId();
+      }
+    }, 0, 20, TimeUnit.MILLISECONDS);
+    Thread.sleep(350);
+    scheduled.cancel();
+    Assert.assertTrue(scheduled.getRunCount() >= 2);
+    Assert.assertTrue(scheduled.getSkipCount() > 0);
+    Assert.assertEquals(overlaps.get(), 0);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testGraph() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    TaskGraph graph = manager.createGraph();
+    final TaskGraph.Node<Integer> a = graph.add(new ValueTask("a", order, 1));
+    final TaskGraph.Node<Integer> b = graph.add(new ValueTask("b", order, 2), a);
+    final TaskGraph.Node<Integer> c = graph.add(new ValueTask("c", order, 3), a);
+    TaskGraph.Node<Integer> d = graph.add(new AbstractTask<Integer, Object>("d") {
+      @Override
+      public Integer execute(Tracker<Object> tracker) throws Exception {
+        order.add(getId());
+        return a.getResult() + b.getResult() + c.getResult();
+      }
+    }, b, c);
+    graph.execute();
+    graph.getFuture().get(5, TimeUnit.SECONDS);
+
+    Assert.assertEquals(d.getResult(), Integer.valueOf(6));
+    Assert.assertEquals(order.size(), 4);
+    Assert.assertEquals(order.get(0), "a");
+    Assert.assertEquals(order.get(3), "d");
+    Assert.assertEquals(graph.getNodes().size(), 4);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testGraphCancelsDependentsOfFailedTask() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    TaskGraph graph = manager.createGraph();
+    TaskGraph.Node<Integer> failing = graph.add(new AbstractTask<Integer, Object>("failing") {
+      @Override
+      public Integer execute(Tracker<Object> tracker) throws Exception {
+        throw new IllegalStateException("failing");
+      }
+    });
+    TaskGraph.Node<Integer> independent = graph.add(new ValueTask("independent", order, 1));
+    TaskGraph.Node<Integer> dependent = graph.add(new ValueTask("dependent", order, 2), failing);
+    TaskGraph.Node<Integer> transitive = graph.add(new ValueTask("transitive", order, 3), dependent, independent);
+    graph.execute();
+    try {
+      graph.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("graph did not fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertEquals(independent.getResult(), Integer.valueOf(1));
+    Assert.assertEquals(order, (Object) Collections.singletonList("independent"));
+    assertCancelled(dependent.getControl());
+    assertCancelled(transitive.getControl());
+    manager.shutdown();
+  }
+
+  private static void assertCancelled(TaskControl<?> control) throws Exception {
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("task " + control.getContext().getContextId() + " has not been cancelled");
+    } catch (CancellationException e) {
+      //expected
+    }
+  }
+
+  private static class ValueTask extends AbstractTask<Integer, Object> {
+    private final List<String> order;
+    private final int value;
+
+    private ValueTask(String id, List<String> order, int value) {
+      super(id);
+      this.order = order;
+      this.value = value;
+    }
+
+    @Override
+    public Integer execute(Tracker<Object> tracker) throws Exception {
+      order.add(getId());
+      return value;
+    }
+  }
+
+  /**
+   * Waits until the given state has been delivered to the listeners of the control.
+   */
+  private static void awaitState(TaskManagerImpl manager, final TaskControl<?> control, final State state) throws Exception {
+    final CountDownLatch reached = new CountDownLatch(1);
+    TaskListenerAdapter listener = new TaskListenerAdapter() {
+      @Override
+      public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+        if (event.getNewValue() == state) {
+          reached.countDown();
+        }
+      }
+    };
+    String contextId = control.getContext().getContextId();
+    manager.getTaskListenerSupport().addListener(listener);
+    try {
+      if (control.getContext().getState() != state) {
+        Assert.assertTrue(reached.await(5, TimeUnit.SECONDS), "state " + state + " not reached by " + contextId);
+      }
+    } finally {
+      manager.getTaskListenerSupport().removeListener(listener);
+    }
+    //let the other listeners of the event finish
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+
+  private static class BlockingTask extends AbstractTask<String, Object> {
+    private final CountDownLatch release;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final AtomicReference<Object> result = new AtomicReference<Object>();
+
+    private BlockingTask(String id, /*@Nullable*/ CountDownLatch release) {
+      super(id);
+      this.release = release;
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      runs.incrementAndGet();
+      started.countDown();
+      if (release != null) {
+        release.await();
+      }
+      return getId();
+    }
+
+    @Override
+    public void done(String value) {
+      result.set(value);
+      completed.countDown();
+    }
+
+    @Override
+    public void failed(Throwable cause) {
+      result.set(cause);
+      completed.countDown();
+    }
+  }
+}
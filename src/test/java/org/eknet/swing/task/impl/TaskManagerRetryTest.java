@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.CircuitOpenException;
+import org.eknet.swing.task.CircuitState;
+import org.eknet.swing.task.RetryPolicy;
+import org.eknet.swing.task.Task;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:50
+ */
+public class TaskManagerRetryTest {
+
+  @Test
+  public void testPolicyDelays() {
+    RetryPolicy policy = new RetryPolicy(5, 10, 50, TimeUnit.MILLISECONDS).withJitter(0);
+    Assert.assertEquals(policy.getDelay(1), 10L);
+    Assert.assertEquals(policy.getDelay(2), 20L);
+    Assert.assertEquals(policy.getDelay(3), 40L);
+    Assert.assertEquals(policy.getDelay(4), 50L);
+
+    RetryPolicy jittered = policy.withJitter(0.5);
+    for (int i = 0; i < 100; i++) {
+      long delay = jittered.getDelay(2);
+      Assert.assertTrue(delay >= 10 && delay <= 20, "delay out of range: " + delay);
+    }
+  }
+
+  @Test
+  public void testPolicyAttemptsAndFilter() {
+    Task<Object, Object> task = new FailingTask("task", 0, new AtomicInteger());
+    RetryPolicy policy = new RetryPolicy(3, 1, 1, TimeUnit.MILLISECONDS);
+    Assert.assertTrue(policy.isRetryable(task, 1, new IllegalStateException()));
+    Assert.assertTrue(policy.isRetryable(task, 2, new IllegalStateException()));
+    Assert.assertFalse(policy.isRetryable(task, 3, new IllegalStateException()));
+    Assert.assertFalse(policy.isRetryable(task, 1, new InterruptedException()));
+
+    RetryPolicy filtered = policy.withFilter(new RetryPolicy.Filter() {
+      @Override
+      public boolean isRetryable(Task<?, ?> task, Throwable cause) {
+        return cause instanceof IllegalStateException;
+      }
+    });
+    Assert.assertTrue(filtered.isRetryable(task, 1, new IllegalStateException()));
+    Assert.assertFalse(filtered.isRetryable(task, 1, new IllegalArgumentException()));
+  }
+
+  @Test
+  public void testPolicyRejectsNullFilter() {
+    try {
+      new RetryPolicy(3, 1, 1, TimeUnit.MILLISECONDS).withFilter(null);
+      Assert.fail("null filter accepted");
+    } catch (IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testGivesUpAfterMaxAttempts() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setRetryPolicy(new RetryPolicy(3, 1, 1, TimeUnit.MILLISECONDS));
+    AtomicInteger runs = new AtomicInteger();
+    TaskControl<Object> control = manager.create(new FailingTask("failing", 10, runs));
+    control.execute();
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("task did not fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertEquals(runs.get(), 3);
+    Assert.assertEquals(control.getContext().getAttempt(), 3);
+    manager.shutdown();
+  }
+
+  @Test
+  public void testCircuitOpensAndCloses() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    CircuitBreaker breaker = new CircuitBreaker(2, 200, TimeUnit.MILLISECONDS);
+    manager.setCircuitBreaker(breaker);
+    AtomicInteger runs = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      assertFailure(manager.create(new FailingTask("remote", 2, runs)), IllegalStateException.class);
+    }
+    Assert.assertEquals(breaker.getState("remote"), CircuitState.OPEN);
+
+    assertFailure(manager.create(new FailingTask("remote", 2, runs)), CircuitOpenException.class);
+    Assert.assertEquals(runs.get(), 2);
+    //other ids are not affected
+    Assert.assertEquals(breaker.getState("other"), CircuitState.CLOSED);
+
+    Thread.sleep(250);
+    Assert.assertEquals(breaker.getState("remote"), CircuitState.HALF_OPEN);
+    TaskControl<Object> trial = manager.create(new FailingTask("remote", 2, runs));
+    trial.execute();
+    Assert.assertEquals(trial.getFuture().get(5, TimeUnit.SECONDS), "remote");
+    Assert.assertEquals(runs.get(), 3);
+    Assert.assertEquals(breaker.getState("remote"), CircuitState.CLOSED);
+    manager.shutdown();
+  }
+
+  private static void assertFailure(TaskControl<Object> control, Class<? extends Throwable> type) throws Exception {
+    control.execute();
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("task did not fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(type.isInstance(e.getCause()), "Unexpected failure: " + e.getCause());
+    }
+  }
+
+  /**
+   * Fails for the given number of runs, counted over all instances sharing the counter.
+   */
+  private static class FailingTask extends AbstractTask<Object, Object> {
+    private final int failures;
+    private final AtomicInteger runs;
+
+    private FailingTask(String id, int failures, AtomicInteger runs) {
+      super(id);
+      this.failures = failures;
+      this.runs = runs;
+    }
+
+    @Override
+    public Object execute(Tracker<Object> tracker) throws Exception {
+      if (runs.incrementAndGet() <= failures) {
+        throw new IllegalStateException("run " + runs.get());
+      }
+      return getId();
+    }
+  }
+}
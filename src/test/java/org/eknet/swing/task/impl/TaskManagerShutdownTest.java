@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.RetryPolicy;
+import org.eknet.swing.task.ScheduledTask;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:40
+ */
+public class TaskManagerShutdownTest {
+
+  private final Map<String, State> finalStates = new ConcurrentHashMap<String, State>();
+
+  @Test
+  public void testShutdownNowCancelsDelayedTasks() throws Exception {
+    TaskManagerImpl manager = newManager();
+    final CountDownLatch started = new CountDownLatch(1);
+    TaskControl<String> running = manager.create(new AbstractTask<String, Object>("running") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        started.countDown();
+        Thread.sleep(10000);
+        return "running";
+      }
+    });
+    running.execute();
+    TaskControl<String> scheduled = manager.schedule(new ResultTask("scheduled"), 1, TimeUnit.HOURS);
+    TaskControl<String> debounced = manager.createDebounced(new ResultTask("debounced"), 1, TimeUnit.HOURS);
+    ScheduledTask<String> periodic = manager.scheduleAtFixedRate(new ResultTask("periodic"), 1, 1, TimeUnit.HOURS);
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    manager.shutdownNow();
+
+    assertCancelled(running);
+    assertCancelled(scheduled);
+    assertCancelled(debounced);
+    Assert.assertTrue(periodic.isCancelled());
+    Assert.assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testShutdownFinishesRunningAndCancelsDelayedTasks() throws Exception {
+    TaskManagerImpl manager = newManager();
+    final CountDownLatch release = new CountDownLatch(1);
+    TaskControl<String> running = manager.create(new AbstractTask<String, Object>("running") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        release.await();
+        return "done";
+      }
+    });
+    running.execute();
+    TaskControl<String> scheduled = manager.schedule(new ResultTask("scheduled"), 1, TimeUnit.HOURS);
+
+    manager.shutdown();
+
+    assertCancelled(scheduled);
+    Assert.assertFalse(manager.awaitTermination(100, TimeUnit.MILLISECONDS));
+    release.countDown();
+    Assert.assertEquals(running.getFuture().get(5, TimeUnit.SECONDS), "done");
+    Assert.assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+    awaitFinalState("running");
+    Assert.assertEquals(finalStates.get("running"), State.DONE);
+  }
+
+  @Test
+  public void testShutdownCancelsPendingRetry() throws Exception {
+    TaskManagerImpl manager = newManager();
+    manager.setRetryPolicy(new RetryPolicy(3, 1, 1, TimeUnit.HOURS));
+    final CountDownLatch failed = new CountDownLatch(1);
+    TaskControl<String> control = manager.create(new AbstractTask<String, Object>("retried") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        failed.countDown();
+        throw new IllegalStateException("failing");
+      }
+    });
+    control.execute();
+    Assert.assertTrue(failed.await(5, TimeUnit.SECONDS));
+    //wait until the next attempt is waiting for its delay
+    long deadline = System.currentTimeMillis() + 5000;
+    while (control.getContext().getAttempt() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(control.getContext().getAttempt(), 2);
+
+    manager.shutdown();
+
+    assertCancelled(control);
+    Assert.assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private TaskManagerImpl newManager() {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.getTaskListenerSupport().addListener(new TaskListenerAdapter() {
+      @Override
+      public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+        if (event.getNewValue() != null && event.getNewValue().isFinalState()) {
+          finalStates.put(event.getSource().getTask().getId(), event.getNewValue());
+        }
+      }
+    });
+    return manager;
+  }
+
+  private void assertCancelled(TaskControl<String> control) throws Exception {
+    try {
+      control.getFuture().get(5, TimeUnit.SECONDS);
+      Assert.fail("Task '" + control.getContext().getTask().getId() + "' has not been cancelled");
+    } catch (CancellationException e) {
+      //expected
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof CancellationException, "Unexpected failure: " + e.getCause());
+    }
+    String id = control.getContext().getTask().getId();
+    awaitFinalState(id);
+    Assert.assertEquals(finalStates.get(id), State.CANCELLED);
+    Assert.assertEquals(control.getContext().getState(), State.CANCELLED);
+  }
+
+  private void awaitFinalState(String id) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!finalStates.containsKey(id) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static class ResultTask extends AbstractTask<String, Object> {
+    private ResultTask(String id) {
+      super(id);
+    }
+
+    @Override
+    public String execute(Tracker<Object> tracker) throws Exception {
+      return getId();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.swing.task.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.TaskFuture;
+import org.eknet.swing.task.TaskScope;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:05
+ */
+public class TaskScopeImplTest {
+
+  @Test
+  public void testJoinCompletesProgress() throws Exception {
+    ProgressTracker tracker = new ProgressTracker();
+    TaskScopeImpl<Object> scope = new TaskScopeImpl<Object>(tracker, null);
+    TaskFuture<Integer> first = scope.fork(new PartTask(1));
+    TaskFuture<Integer> second = scope.fork(new PartTask(2));
+    scope.join();
+    Assert.assertEquals(first.get(), Integer.valueOf(1));
+    Assert.assertEquals(second.get(), Integer.valueOf(2));
+    Assert.assertEquals(tracker.last, AbstractTracker.SCALE);
+  }
+
+  @Test
+  public void testForkAfterCancelKeepsProgress() throws Exception {
+    ProgressTracker tracker = new ProgressTracker();
+    TaskScopeImpl<Object> scope = new TaskScopeImpl<Object>(tracker, null);
+    scope.fork(new PartTask(1)).get(5, TimeUnit.SECONDS);
+    scope.cancel();
+    TaskFuture<Integer> late = scope.fork(new PartTask(2));
+    Assert.assertTrue(late.isCancelled());
+    Assert.assertEquals(tracker.last, AbstractTracker.SCALE);
+    try {
+      scope.join();
+      Assert.fail("join of a cancelled scope must fail");
+    } catch (CancellationException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testFailureCancelsSiblings() throws Exception {
+    ProgressTracker tracker = new ProgressTracker();
+    TaskScopeImpl<Object> scope = new TaskScopeImpl<Object>(tracker, null);
+    final CountDownLatch never = new CountDownLatch(1);
+    TaskFuture<Integer> blocked = scope.fork(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        never.await();
+        return 0;
+      }
+    });
+    scope.fork(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        throw new IllegalStateException("failing child");
+      }
+    });
+    try {
+      scope.join();
+      Assert.fail("join must report the failing child");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertTrue(blocked.isCancelled());
+    Assert.assertTrue(scope.isCancelled());
+  }
+
+  private static class PartTask extends AbstractTask<Integer, Object> {
+    private final int value;
+
+    private PartTask(int value) {
+      super("part" + value);
+      this.value = value;
+    }
+
+    @Override
+    public Integer execute(Tracker<Object> tracker) throws Exception {
+      tracker.setProgress(50);
+      return value;
+    }
+  }
+
+  private static class ProgressTracker extends AbstractTracker<Object> {
+    private volatile long last = -1;
+
+    @Override
+    protected void setScaledProgress(long progress) {
+      last = progress;
+    }
+
+    @Override
+    public void setProgress(int progress) {
+      setScaledProgress(progress * (SCALE / 100));
+    }
+
+    @Override
+    public void setPhase(String phase) {
+    }
+
+    @Override
+    public void publish(Object... chunks) {
+    }
+
+    @Override
+    Executor getScopeExecutor() {
+      return null;
+    }
+
+    @Override
+    void bindScope(TaskScope<?> scope) {
+    }
+  }
+}
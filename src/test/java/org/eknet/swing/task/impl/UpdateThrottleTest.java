@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.eknet.swing.task.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eknet.swing.task.AbstractTask;
+import org.eknet.swing.task.ChangeEvent;
+import org.eknet.swing.task.State;
+import org.eknet.swing.task.TaskControl;
+import org.eknet.swing.task.TaskListenerAdapter;
+import org.eknet.swing.task.Tracker;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 23:25
+ */
+public class UpdateThrottleTest {
+
+  @Test
+  public void testCoalescesUpdates() throws Exception {
+    final AtomicInteger deliveries = new AtomicInteger();
+    UpdateThrottle throttle = new UpdateThrottle(10, new Runnable() {
+      @Override
+      public void run() {
+        deliveries.incrementAndGet();
+      }
+    });
+    for (int i = 0; i < 1000; i++) {
+      throttle.update();
+    }
+    //the first update is delivered immediately, the others once the interval elapsed
+    Assert.assertEquals(deliveries.get(), 1);
+    Thread.sleep(300);
+    Assert.assertEquals(deliveries.get(), 2);
+
+    //the timer is reused for the next burst
+    for (int i = 0; i < 1000; i++) {
+      throttle.update();
+    }
+    Assert.assertEquals(deliveries.get(), 3);
+    Thread.sleep(300);
+    Assert.assertEquals(deliveries.get(), 4);
+  }
+
+  @Test
+  public void testFlushDeliversPendingUpdate() throws Exception {
+    final AtomicInteger deliveries = new AtomicInteger();
+    UpdateThrottle throttle = new UpdateThrottle(10, new Runnable() {
+      @Override
+      public void run() {
+        deliveries.incrementAndGet();
+      }
+    });
+    throttle.update();
+    throttle.update();
+    Assert.assertEquals(deliveries.get(), 1);
+    throttle.flush();
+    Assert.assertEquals(deliveries.get(), 2);
+    //nothing is left for the scheduled delivery
+    Thread.sleep(300);
+    Assert.assertEquals(deliveries.get(), 2);
+    throttle.flush();
+    Assert.assertEquals(deliveries.get(), 2);
+  }
+
+  @Test
+  public void testWorkerDeliversFinalProgress() throws Exception {
+    TaskManagerImpl manager = new TaskManagerImpl(true);
+    manager.setMaxUpdateRate(10);
+    final List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+    final List<String> phases = Collections.synchronizedList(new ArrayList<String>());
+    final AtomicInteger done = new AtomicInteger();
+    manager.getTaskListenerSupport().addListener(new TaskListenerAdapter() {
+      @Override
+      public void progressChanged(/*@NotNull*/ ChangeEvent<Integer> event) {
+        progress.add(event.getNewValue());
+      }
+
+      @Override
+      public void phaseChanged(/*@NotNull*/ ChangeEvent<String> event) {
+        phases.add(event.getNewValue());
+      }
+
+      @Override
+      public void stateChanged(/*@NotNull*/ ChangeEvent<State> event) {
+        if (event.getNewValue() == State.DONE) {
+          done.incrementAndGet();
+        }
+      }
+    });
+    TaskControl<String> control = manager.create(new AbstractTask<String, Object>("loop") {
+      @Override
+      public String execute(Tracker<Object> tracker) throws Exception {
+        for (int i = 1; i <= 100; i++) {
+          tracker.setPhase("step " + i);
+          tracker.setProgress(i);
+        }
+        return getId();
+      }
+    });
+    Assert.assertEquals(control.waitFor(5, TimeUnit.SECONDS), "loop");
+    long deadline = System.currentTimeMillis() + 5000;
+    while (done.get() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(done.get(), 1);
+    Assert.assertTrue(progress.size() < 10, "updates not coalesced: " + progress);
+    Assert.assertEquals(progress.get(progress.size() - 1), (Object) 100);
+    Assert.assertEquals(phases.get(phases.size() - 1), "step 100");
+    manager.shutdown();
+  }
+}